@@ -18,8 +18,11 @@ public class CliRunner {
         commands.put("resolve-jmix", new ResolveJmixCommand());
         commands.put("resolve-npm", new ResolveNpmCommand());
         commands.put("resolve-lib", new ResolveLibCommand());
+        commands.put("resolve-batch", new ResolveBatchCommand());
         commands.put("export", new ExportCommand());
         commands.put("export-npm", new ExportNpmCommand());
+        commands.put("gc-store", new GcStoreCommand());
+        commands.put("diff-export", new DiffExportCommand());
         commands.put("upload", new UploadCommand());
         commands.put("upload-npm", new UploadNpmCommand());
         JCommander.Builder commanderBuilder = JCommander.newBuilder();
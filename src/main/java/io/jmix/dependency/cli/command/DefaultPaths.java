@@ -37,4 +37,9 @@ public class DefaultPaths {
     public static String getDefaultNpmLockFile() {
         return base().resolve("../npm-work/package-lock.json").toAbsolutePath().toString();
     }
+
+    /** Persistent npm registry metadata cache used by export-npm between runs. */
+    public static String getDefaultNpmRegistryCacheDir() {
+        return base().resolve("../npm-work/registry-cache").toAbsolutePath().toString();
+    }
 }
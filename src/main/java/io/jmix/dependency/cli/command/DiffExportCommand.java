@@ -0,0 +1,109 @@
+package io.jmix.dependency.cli.command;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.export.ArchiveWriter;
+import io.jmix.dependency.cli.export.ExportDiff;
+import io.jmix.dependency.cli.export.ExportManifest;
+import io.jmix.dependency.cli.upload.ArtifactsInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Builds a delta bundle between two releases: the files of the newer export that the older one does not have (or
+ * has with other content), in the export layout, so {@code upload} / {@code upload-npm} take it as input.
+ * <p>
+ * The two releases are compared through what their exports left behind - manifests, records files or text reports
+ * (see {@link ExportDiff}); the files themselves are copied out of the newer export directory, or out of its
+ * archive, unpacked into a temporary directory first.
+ */
+@Parameters(commandDescription = "Copies the artifacts a newer export adds to an older one into a delta bundle")
+public class DiffExportCommand implements BaseCommand {
+
+    private static final Logger log = LoggerFactory.getLogger(DiffExportCommand.class);
+
+    @Parameter(names = {"--old"}, description = "The older release: its export directory, export manifest, records " +
+            "file or report file", required = true, order = 0)
+    private String oldInput;
+
+    @Parameter(names = {"--new"}, description = "The newer release: its export directory, export manifest, records " +
+            "file or report file", required = true, order = 1)
+    private String newInput;
+
+    @Parameter(names = {"--export-dir"}, description = "Export directory (or --archive zip) of the newer release, the " +
+            "files are copied from there. Defaults to --new if it is a directory or zip, else to the directory of a " +
+            "--new export manifest", order = 2)
+    private String exportDir;
+
+    @Parameter(names = {"--target-dir"}, description = "Directory the delta bundle is written to", order = 3)
+    private String targetDirectory;
+
+    @Parameter(names = {"--archive"}, description = "Write the delta bundle into this zip file instead", order = 4)
+    private String archiveFile;
+
+    @Parameter(names = {"--allow-missing"}, description = "Build the bundle even if some delta entries are not in " +
+            "--export-dir (they are logged). By default that fails the command before anything is copied", order = 5)
+    private boolean allowMissing;
+
+    @Override
+    public void run() {
+        if ((targetDirectory == null) == (archiveFile == null)) {
+            throw new RuntimeException("Exactly one of --target-dir and --archive is required");
+        }
+        Path oldPath = Paths.get(oldInput).toAbsolutePath().normalize();
+        Path newPath = Paths.get(newInput).toAbsolutePath().normalize();
+        Path exportPath = exportDir != null ? Paths.get(exportDir).toAbsolutePath().normalize() : defaultExportDir(newPath);
+        log.info("Old release: {}", oldPath);
+        log.info("New release: {}", newPath);
+        log.info("Copying from: {}", exportPath);
+
+        ExportDiff.Result diff = ExportDiff.compare(ExportDiff.listing(oldPath), ExportDiff.listing(newPath));
+        log.info("{} entr(ies) added, {} changed, {} removed", diff.added().size(), diff.changed().size(),
+                diff.removed().size());
+        if (!diff.changed().isEmpty()) {
+            log.warn("Content changed under the same name (a release repository may refuse to overwrite it): {}",
+                    diff.changed());
+        }
+
+        List<String> delta = diff.delta();
+        int copied;
+        try (ArtifactsInput input = ArtifactsInput.open(exportPath)) {
+            if (archiveFile != null) {
+                Path archivePath = Paths.get(archiveFile).toAbsolutePath().normalize();
+                log.info("Archive: {}", archivePath);
+                try (ArchiveWriter archive = new ArchiveWriter(archivePath)) {
+                    copied = ExportDiff.materialize(delta, input.dir(), archive, allowMissing);
+                    archive.finish();
+                }
+            } else {
+                Path targetPath = Paths.get(targetDirectory).toAbsolutePath().normalize();
+                log.info("Target directory: {}", targetPath);
+                copied = ExportDiff.materialize(delta, input.dir(), targetPath, allowMissing);
+            }
+        }
+        log.info("Delta bundle completed: {} file(s)", copied);
+    }
+
+    private static Path defaultExportDir(Path newPath) {
+        if (Files.isDirectory(newPath)) {
+            return newPath;
+        }
+        if (newPath.getFileName().toString().equals(ExportManifest.FILE_NAME)) {
+            return newPath.getParent();
+        }
+        try {
+            if (Files.isRegularFile(newPath) && ExportDiff.isZip(newPath)) {
+                return newPath;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read " + newPath, e);
+        }
+        throw new RuntimeException("--export-dir is required when --new is a records or report file");
+    }
+}
@@ -2,13 +2,24 @@ package io.jmix.dependency.cli.command;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.export.ArchiveWriter;
+import io.jmix.dependency.cli.export.BlobStore;
+import io.jmix.dependency.cli.export.ExportManifest;
+import io.jmix.dependency.cli.export.ExportRecords;
+import io.jmix.dependency.cli.export.GradleCacheExporter;
+import io.jmix.dependency.cli.export.LinkMode;
+import io.jmix.dependency.cli.export.PomClosure;
+import io.jmix.dependency.cli.export.ResolutionManifest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 
 @Parameters(commandDescription = "Exports resolved dependencies")
@@ -25,6 +36,44 @@ public class ExportCommand implements BaseCommand {
     @Parameter(names = {"--report-file"}, description = "Path to the report file")
     private String reportFile;
 
+    @Parameter(names = {"--incremental"}, description = "Only copy files that are new or changed since the last " +
+            "export, as recorded in the target directory's " + ExportManifest.FILE_NAME)
+    private boolean incremental;
+
+    @Parameter(names = {"--link-mode"}, description = "How files are put into the target directory: COPY, HARDLINK " +
+            "(same filesystem as the Gradle cache), REFLINK (copy-on-write clone) or AUTO (hard link, else clone, " +
+            "else copy). Falls back to copying when the mode is not possible")
+    private LinkMode linkMode = LinkMode.COPY;
+
+    @Parameter(names = {"--threads"}, description = "Number of export workers: the Gradle cache is walked and " +
+            "copied in parallel")
+    private int threads = GradleCacheExporter.DEFAULT_THREADS;
+
+    @Parameter(names = {"--archive"}, description = "Write the export straight into this zip file instead of the " +
+            "target directory (jars are stored, not recompressed)")
+    private String archiveFile;
+
+    @Parameter(names = {"--store-dir"}, description = "Content-addressed store shared by many exports: each file is " +
+            "kept there once (by SHA-256) and hard-linked into the target directory. Clean it up with gc-store")
+    private String storeDir;
+
+    @Parameter(names = {"--checksums"}, description = "Write .sha1, .sha256 and .sha512 sidecars next to every " +
+            "exported file, hashed while the file is copied")
+    private boolean checksums;
+
+    @Parameter(names = {"--verify"}, description = "Check the SHA-1 of every copied file against its Gradle cache " +
+            "directory name and list mismatches in the log and the report file")
+    private boolean verify;
+
+    @Parameter(names = {"--resolution-manifest"}, description = "Export only the module versions listed in this " +
+            "resolution manifest (written by resolve-jmix / resolve-lib --resolution-manifest), plus their parent " +
+            "and BOM poms. May be repeated")
+    private List<String> resolutionManifests;
+
+    @Parameter(names = {"--records-file"}, description = "JSON Lines file streamed during the export: one record per " +
+            "exported file with coordinates, file, classifier, size, SHA-256 and source")
+    private String recordsFile;
+
     @Override
     public void run() {
         if (gradleUserHome == null) {
@@ -34,67 +83,79 @@ public class ExportCommand implements BaseCommand {
             targetDirectory = DefaultPaths.getDefaultExportDir();
         }
 
-        log.info("Target directory: {}", Paths.get(targetDirectory).toAbsolutePath().normalize());
+        if (archiveFile != null && storeDir != null) {
+            throw new RuntimeException("--archive and --store-dir cannot be combined");
+        }
+        if (archiveFile != null) {
+            log.info("Archive: {}", Paths.get(archiveFile).toAbsolutePath().normalize());
+        } else {
+            log.info("Target directory: {}", Paths.get(targetDirectory).toAbsolutePath().normalize());
+        }
         log.info("Gradle user home directory: {}", Paths.get(gradleUserHome).toAbsolutePath().normalize());
 
-        TreeSet<String> exportedDependencies = new TreeSet<>();
-
         if (reportFile != null) {
             log.info("Path to the report file: {}", Paths.get(reportFile).toAbsolutePath().normalize());
         }
 
-        Path gradleUserHomeDir = Paths.get(gradleUserHome);
-        Path cachedGradleArtifactsDir = gradleUserHomeDir.resolve("caches/modules-2/files-2.1");
+        Path cachedGradleArtifactsDir = Paths.get(gradleUserHome).resolve("caches/modules-2/files-2.1");
         Path targetDirectoryPath = Paths.get(targetDirectory);
-        try {
-            Files.walkFileTree(cachedGradleArtifactsDir, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (!Files.isDirectory(file) &&
-                            (file.getFileName().toString().endsWith(".jar") ||
-                                    file.getFileName().toString().endsWith(".pom") ||
-                                    file.getFileName().toString().endsWith(".module"))) {
-                        Path versionDir = file.getParent().getParent();
-                        Path artifactDir = versionDir.getParent();
-                        Path moduleDir = artifactDir.getParent();
-
-                        String nestedOutputDirPath = moduleDir.getFileName().toString().replace(".", "/") + "/" +
-                                artifactDir.getFileName().toString() + "/" + versionDir.getFileName().toString();
-
-                        // Report one GAV per module version, regardless of which files it ships. Some modules
-                        // are intentionally pom-only (e.g. jmix-bom) and must NOT be missed just because they
-                        // have no .jar. The output is GAV coordinates (not a file list), and the TreeSet both
-                        // de-duplicates (pom + jar + module + sources of the same version collapse to one entry)
-                        // and keeps the report ordered alphabetically.
-                        if (reportFile != null) {
-                            String dependency = moduleDir.getFileName() +
-                                    ":" + artifactDir.getFileName() +
-                                    ":" + versionDir.getFileName();
-
-                            exportedDependencies.add(dependency);
-                        }
-
-                        try {
-                            Path outputDirectory = targetDirectoryPath.resolve(nestedOutputDirPath);
-                            Path outputFile = outputDirectory.resolve(file.getFileName());
-                            if (!Files.exists(outputFile)) {
-                                log.debug("Copying file: {}", file.getFileName());
-                                Files.createDirectories(outputDirectory);
-                                Files.copy(file, outputFile);
-                            }
-                        } catch (IOException e) {
-                            throw new RuntimeException("Error while copying a file " + file.getFileName(), e);
-                        }
-
-                    }
-                    return FileVisitResult.CONTINUE;
+        log.info("Link mode: {}, {} export thread(s)", linkMode, threads);
+        GradleCacheExporter exporter = new GradleCacheExporter(cachedGradleArtifactsDir, targetDirectoryPath,
+                incremental, linkMode, threads);
+        exporter.writeChecksums(checksums).verify(verify);
+        Set<String> requested = null;
+        if (resolutionManifests != null && !resolutionManifests.isEmpty()) {
+            requested = new TreeSet<>();
+            for (String manifestFile : resolutionManifests) {
+                Path manifestPath = Paths.get(manifestFile).toAbsolutePath().normalize();
+                Set<String> components = ResolutionManifest.load(manifestPath).components();
+                log.info("Resolution manifest {}: {} module version(s)", manifestPath, components.size());
+                requested.addAll(components);
+            }
+            Set<String> closure = PomClosure.expand(cachedGradleArtifactsDir, requested);
+            log.info("Exporting {} module version(s), {} of them parent or BOM poms",
+                    closure.size(), closure.size() - requested.size());
+            exporter.only(closure);
+        }
+        if (storeDir != null) {
+            Path storePath = Paths.get(storeDir).toAbsolutePath().normalize();
+            log.info("Export store: {}", storePath);
+            exporter.storeIn(new BlobStore(storePath));
+        }
+        GradleCacheExporter.Report report;
+        try (ExportRecords records = recordsFile != null ? new ExportRecords(Paths.get(recordsFile)) : null) {
+            if (records != null) {
+                log.info("Records file: {}", records.file());
+                exporter.recordTo(records);
+            }
+            if (archiveFile != null) {
+                try (ArchiveWriter archive = new ArchiveWriter(Paths.get(archiveFile))) {
+                    report = exporter.archiveTo(archive).export();
+                    archive.finish();
                 }
-            });
-        } catch (IOException e) {
-            throw new RuntimeException("Error on copying files from gradle caches", e);
+            } else {
+                report = exporter.export();
+            }
+        }
+        log.info("Exported {} module version(s): {} file(s) copied, {} updated, {} unchanged ({})",
+                report.components.size(), report.copied.get(), report.updated.get(), report.unchanged.get(),
+                report.transfers);
+        if (requested != null) {
+            Set<String> notInCache = new TreeSet<>(requested);
+            notInCache.removeAll(report.components);
+            if (!notInCache.isEmpty()) {
+                log.warn("{} module version(s) of the resolution manifest are not in the Gradle cache: {}",
+                        notInCache.size(), notInCache);
+            }
+        }
+        if (!report.checksumMismatches.isEmpty()) {
+            log.warn("{} file(s) do not match the SHA-1 of their Gradle cache entry: {}",
+                    report.checksumMismatches.size(), report.checksumMismatches);
         }
 
-        if (!exportedDependencies.isEmpty()) {
+        // Report one GAV per module version, regardless of which files it ships. The output is GAV coordinates
+        // (not a file list), de-duplicated and ordered alphabetically.
+        if (reportFile != null && !report.components.isEmpty()) {
             try {
                 Files.deleteIfExists(Paths.get(reportFile));
             } catch (IOException e) {
@@ -102,9 +163,16 @@ public class ExportCommand implements BaseCommand {
             }
 
             try (FileWriter fileWriter = new FileWriter(reportFile, true)) {
-                for (String exportedDependency : exportedDependencies) {
+                for (String exportedDependency : report.components) {
                     fileWriter.append(exportedDependency).append("\n");
                 }
+                if (!report.checksumMismatches.isEmpty()) {
+                    fileWriter.append("# Checksum mismatches (").append(String.valueOf(report.checksumMismatches.size()))
+                            .append(")\n");
+                    for (String mismatch : report.checksumMismatches) {
+                        fileWriter.append(mismatch).append("\n");
+                    }
+                }
             } catch (IOException e) {
                 throw new RuntimeException("Error while writing the report file", e);
             }
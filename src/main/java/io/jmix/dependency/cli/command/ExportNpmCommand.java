@@ -2,6 +2,9 @@ package io.jmix.dependency.cli.command;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.export.ArchiveWriter;
+import io.jmix.dependency.cli.export.BlobStore;
+import io.jmix.dependency.cli.export.ExportRecords;
 import io.jmix.dependency.cli.npm.NpmDownloadPlan;
 import io.jmix.dependency.cli.npm.NpmExporter;
 import io.jmix.dependency.cli.npm.NpmRegistryClient;
@@ -17,6 +20,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Exports npm dependencies as a directory of tgz archives ready for {@code upload-npm}.
@@ -51,6 +55,34 @@ public class ExportNpmCommand implements BaseCommand {
     @Parameter(names = {"--report-file"}, description = "Path to a file listing mirrored (resolved + variant) artifacts", order = 3)
     private String reportFile;
 
+    @Parameter(names = {"--concurrency"}, description = "Number of tarballs downloaded in parallel", order = 4)
+    private int concurrency = NpmExporter.DEFAULT_CONCURRENCY;
+
+    @Parameter(names = {"--max-connections-per-host"},
+            description = "Maximum simultaneous connections to a single registry/tarball host", order = 5)
+    private int maxConnectionsPerHost = NpmExporter.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+    @Parameter(names = {"--registry-cache-dir"},
+            description = "Directory where registry metadata is cached between runs and revalidated with ETag / " +
+                    "Last-Modified. Defaults to ../npm-work/registry-cache", order = 6)
+    private String registryCacheDir;
+
+    @Parameter(names = {"--no-registry-cache"}, description = "Do not read or write the registry metadata cache", order = 7)
+    private boolean noRegistryCache;
+
+    @Parameter(names = {"--archive"}, description = "Write the tarballs (and lockfile copies) straight into this zip " +
+            "file instead of the target directory", order = 8)
+    private String archiveFile;
+
+    @Parameter(names = {"--store-dir"}, description = "Content-addressed store shared by many exports: each tarball " +
+            "is kept there once (by SHA-256) and hard-linked into the target directory. Clean it up with gc-store",
+            order = 9)
+    private String storeDir;
+
+    @Parameter(names = {"--records-file"}, description = "JSON Lines file streamed during the export: one record per " +
+            "tarball with coordinates, file, size, SHA-256 and source (resolved or variant)", order = 10)
+    private String recordsFile;
+
     @Override
     public void run() {
         if (targetDirectory == null) {
@@ -62,50 +94,89 @@ public class ExportNpmCommand implements BaseCommand {
 
         List<Path> lockPaths = resolveLockPaths();
         Path targetPath = Paths.get(targetDirectory).toAbsolutePath().normalize();
-        log.info("Target directory: {}", targetPath);
+        if (archiveFile != null && storeDir != null) {
+            throw new RuntimeException("--archive and --store-dir cannot be combined");
+        }
+        if (archiveFile == null) {
+            log.info("Target directory: {}", targetPath);
+        }
         log.info("Registry: {}", npmRegistry);
+        log.info("Concurrent downloads: {} (max {} connection(s) per host)", concurrency, maxConnectionsPerHost);
 
-        List<PackageLock> locks = new ArrayList<>();
+        // Lockfiles are streamed straight into the plan; none of them is held in memory as a whole.
+        NpmDownloadPlan plan = new NpmDownloadPlan();
+        Consumer<PackageLock.Entry> collector = NpmVariantCollector.into(plan);
         List<Path> usedLocks = new ArrayList<>();
         for (Path lp : lockPaths) {
             if (!Files.exists(lp)) {
                 log.info("Lockfile not found, skipping: {}", lp);
                 continue;
             }
-            PackageLock lock = PackageLock.parse(lp);
-            log.info("Lockfile {}: lockfileVersion={}, {} package entries", lp, lock.lockfileVersion(), lock.packageCount());
-            if (!lock.hasPackagesMap()) {
+            int[] entryCount = {0};
+            int lockfileVersion = PackageLock.stream(lp, e -> {
+                entryCount[0]++;
+                collector.accept(e);
+            });
+            log.info("Lockfile {}: lockfileVersion={}, {} package entries", lp, lockfileVersion, entryCount[0]);
+            if (lockfileVersion < 2) {
                 log.warn("Lockfile {} has lockfileVersion < 2 (no 'packages' map); peer-dependency variants " +
                         "cannot be collected from it.", lp);
             }
-            locks.add(lock);
             usedLocks.add(lp);
         }
-        if (locks.isEmpty()) {
+        if (usedLocks.isEmpty()) {
             throw new RuntimeException("No package-lock.json found (looked at: " + lockPaths + "). Run resolve-npm first.");
         }
 
-        NpmDownloadPlan plan = NpmVariantCollector.collect(locks);
         log.info("Mirroring {} artifact(s) from {} lockfile(s): {} resolved + {} variant",
-                plan.totalArtifacts(), locks.size(), plan.resolvedKeys().size(), plan.variantKeys().size());
+                plan.totalArtifacts(), usedLocks.size(), plan.resolvedKeys().size(), plan.variantKeys().size());
         if (!plan.variantKeys().isEmpty()) {
             log.info("Variant versions added (would be missed by a plain resolved-only mirror): {}", plan.variantKeys());
         }
 
+        Path cachePath = null;
+        if (!noRegistryCache) {
+            cachePath = Paths.get(registryCacheDir != null ? registryCacheDir : DefaultPaths.getDefaultNpmRegistryCacheDir())
+                    .toAbsolutePath().normalize();
+            log.info("Registry metadata cache: {}", cachePath);
+        }
+
         NpmExporter.Report report;
-        try (NpmRegistryClient registry = new NpmRegistryClient(npmRegistry);
-             NpmExporter exporter = new NpmExporter(targetPath, registry)) {
-            Files.createDirectories(targetPath);
-            report = exporter.export(plan);
+        try (NpmRegistryClient registry = new NpmRegistryClient(npmRegistry, concurrency, cachePath);
+             NpmExporter exporter = new NpmExporter(targetPath, registry, concurrency, maxConnectionsPerHost);
+             ExportRecords records = recordsFile != null ? new ExportRecords(Paths.get(recordsFile)) : null) {
+            if (records != null) {
+                log.info("Records file: {}", records.file());
+                exporter.recordTo(records);
+            }
+            if (archiveFile != null) {
+                Path archivePath = Paths.get(archiveFile).toAbsolutePath().normalize();
+                log.info("Archive: {}", archivePath);
+                try (ArchiveWriter archive = new ArchiveWriter(archivePath)) {
+                    report = exporter.archiveTo(archive).export(plan);
+                    for (Path lp : usedLocks) {
+                        archive.add(lp.getFileName().toString(), lp);
+                    }
+                    archive.finish();
+                }
+            } else {
+                if (storeDir != null) {
+                    Path storePath = Paths.get(storeDir).toAbsolutePath().normalize();
+                    log.info("Export store: {}", storePath);
+                    exporter.storeIn(new BlobStore(storePath));
+                }
+                Files.createDirectories(targetPath);
+                report = exporter.export(plan);
+                copyLockFiles(usedLocks, targetPath);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Export failed", e);
         }
 
-        copyLockFiles(usedLocks, targetPath);
         writeReport(plan, report);
 
         log.info("Export completed: {} downloaded, {} already present, {} missing, {} integrity mismatches",
-                report.downloaded, report.skippedExisting, report.missing.size(), report.integrityMismatch.size());
+                report.downloaded.get(), report.skippedExisting.get(), report.missing.size(), report.integrityMismatch.size());
         if (!report.missing.isEmpty()) {
             log.warn("Missing tarballs (not mirrored): {}", report.missing);
         }
@@ -0,0 +1,38 @@
+package io.jmix.dependency.cli.command;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.export.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Removes the blobs of an export store ({@code export --store-dir}) that no release export links to any more.
+ * <p>
+ * Releases are dropped simply by deleting their export directories; the hard link count of each blob tells which
+ * ones are still referenced. Do not run it while an export into the same store is in progress.
+ */
+@Parameters(commandDescription = "Deletes blobs of an export store that no release export references any more")
+public class GcStoreCommand implements BaseCommand {
+
+    private static final Logger log = LoggerFactory.getLogger(GcStoreCommand.class);
+
+    @Parameter(names = {"--store-dir"}, description = "Export store directory", required = true)
+    private String storeDir;
+
+    @Parameter(names = {"--dry-run"}, description = "Only report what would be deleted")
+    private boolean dryRun;
+
+    @Override
+    public void run() {
+        Path storePath = Paths.get(storeDir).toAbsolutePath().normalize();
+        log.info("Export store: {}", storePath);
+        BlobStore.GcResult result = new BlobStore(storePath).collectGarbage(dryRun);
+        log.info("{} {} unreferenced blob(s) ({} MB), {} still referenced",
+                dryRun ? "Would delete" : "Deleted", result.removed,
+                String.format("%.1f", result.removedBytes / (1024.0 * 1024.0)), result.kept);
+    }
+}
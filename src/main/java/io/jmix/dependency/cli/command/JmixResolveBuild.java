@@ -0,0 +1,44 @@
+package io.jmix.dependency.cli.command;
+
+import io.jmix.dependency.cli.dependency.SubscriptionPlan;
+import io.jmix.dependency.cli.gradle.GradleArgs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static io.jmix.dependency.cli.dependency.DependencyScope.JVM;
+import static io.jmix.dependency.cli.dependency.JmixDependencies.getVersionSpecificJmixDependencies;
+
+/**
+ * The {@code resolveAll} build of one Jmix version, shared by {@code resolve-jmix} and {@code resolve-batch}: the
+ * options that are the same for every version of a run, turned into the module list and the {@link GradleArgs} of a
+ * version. Each command adds its own per-build properties (resolution manifest, shard) on top.
+ */
+record JmixResolveBuild(boolean resolveCommercialAddons, SubscriptionPlan subscriptionPlan, String jmixLicenseKey,
+                        String publicRepository, String premiumRepository, List<String> repositories,
+                        String gradleJvmArgs, Integer gradleWorkers, boolean noSources) {
+
+    /** The Jmix modules of the version, sorted, so the generated build is the same on every run. */
+    List<String> modules(String jmixVersion) {
+        List<String> modules = new ArrayList<>(getVersionSpecificJmixDependencies(JVM, jmixVersion,
+                resolveCommercialAddons, subscriptionPlan));
+        modules.sort(Comparator.naturalOrder());
+        return modules;
+    }
+
+    GradleArgs gradleArgs(String jmixVersion, String jmixPluginVersion, List<String> modules) {
+        GradleArgs gradleArgs = GradleArgs.create()
+                .jmix(jmixVersion, jmixPluginVersion, jmixLicenseKey, publicRepository, premiumRepository, repositories)
+                .modules(modules)
+                .gradleJvmArgs(gradleJvmArgs)
+                .gradleWorkers(gradleWorkers)
+                .flag("isolatedResolution")
+                .raw("--stacktrace")
+                .raw("--info");
+        if (noSources) {
+            gradleArgs.flag("skipSources");
+        }
+        return gradleArgs;
+    }
+}
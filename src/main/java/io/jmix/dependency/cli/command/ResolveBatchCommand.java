@@ -0,0 +1,218 @@
+package io.jmix.dependency.cli.command;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.dependency.SubscriptionPlan;
+import io.jmix.dependency.cli.gradle.GradleArgs;
+import io.jmix.dependency.cli.gradle.GradleEngine;
+import io.jmix.dependency.cli.gradle.JmixGradleClient;
+import io.jmix.dependency.cli.version.JmixVersion;
+import io.jmix.dependency.cli.workspace.WorkspaceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code resolve-jmix} for a list of Jmix versions - a whole release train - into one shared Gradle user home.
+ * <p>
+ * Every version gets its own workspace ({@code <workspace-dir>/jmix-<version>/project}), so up to
+ * {@code --concurrency} versions are generated and resolved at the same time; Gradle's cache locking lets their
+ * builds share the user home. The builds run on Gradle daemons that later versions of the same Gradle line reuse,
+ * and the daemons are stopped once the batch is done - once per Gradle version, which also stops the daemons of
+ * any other build of that version sharing the user home. A failed version does not stop the others: the batch ends
+ * with one summary of all of them and fails if any did.
+ */
+@Parameters(commandDescription = "Resolves the Java dependencies of several Jmix versions")
+public class ResolveBatchCommand implements BaseCommand {
+
+    private static final Logger log = LoggerFactory.getLogger(ResolveBatchCommand.class);
+
+    public static final int DEFAULT_CONCURRENCY = 2;
+
+    @Parameter(names = {"--jmix-versions"}, description = "Jmix versions to resolve, comma-separated or repeated",
+            required = true, order = 0)
+    private List<String> jmixVersions;
+
+    @Parameter(names = {"--concurrency"}, description = "Number of versions resolved at the same time", order = 1)
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    @Parameter(names = {"--gradle-user-home"}, description = "Directory where Gradle will put resolved dependencies",
+            order = 2)
+    private String gradleUserHome;
+
+    @Parameter(names = {"--workspace-dir"}, description = "Directory under which a resolution Gradle project is " +
+            "generated per version", order = 3)
+    private String workspaceDir;
+
+    @Parameter(names = {"--resolve-commercial-addons"}, description = "Whether to resolve Jmix commercial add-ons. --jmix-license-key must be provided in this case.", order = 4)
+    private boolean resolveCommercialAddons;
+
+    @Parameter(names = {"--jmix-license-key"}, description = "Jmix license key (required for commercial add-ons resolution)", order = 5)
+    private String jmixLicenseKey;
+
+    @Parameter(names = {"--public-repository"}, description = "Url for repository with public artifacts", order = 6)
+    private String publicRepository;
+
+    @Parameter(names = {"--premium-repository"}, description = "Url for repository with premium artifacts", order = 7)
+    private String premiumRepository;
+
+    @Parameter(names = {"--repository"}, description = "Additional Maven repository for dependencies resolution. The format is " +
+            "the following: <url>|<username>|<password>, e.g. http://localhost:8081/jmix|admin|admin. " +
+            "If credentials are not required then just an URL must be passed", order = 8)
+    private List<String> repositories;
+
+    @Parameter(names = {"--commercial-subscription-plan"},
+            description = "Type of commercial subscription plan - 'enterprise' or 'bpm' (default). Relevant only if '--resolve-commercial-addons' is present",
+            order = 9)
+    private String commercialSubscriptionPlan;
+
+    @Parameter(names = {"--no-sources"}, description = "Skip downloading -sources jars (faster resolution). Sources are included by default.", order = 10)
+    private boolean noSources;
+
+    @Parameter(names = {"--gradle-jvmargs"}, description = "Override the Gradle daemon JVM args (e.g. '-Xmx4g'). Default: "
+            + JmixGradleClient.DEFAULT_GRADLE_JVM_ARGS, order = 11)
+    private String gradleJvmArgs;
+
+    @Parameter(names = {"--resolution-manifest-dir"}, description = "Write the resolution manifest of every version " +
+            "to jmix-<version>.resolution in this directory, for a per-release 'export --resolution-manifest'",
+            order = 12)
+    private String resolutionManifestDir;
+
+    @Parameter(names = {"--gradle-daemon-idle-timeout"}, description = "Minutes a Gradle daemon waits for the next " +
+            "build before it exits", order = 13)
+    private int gradleDaemonIdleTimeout = JmixGradleClient.DEFAULT_DAEMON_IDLE_TIMEOUT_MINUTES;
+
+    @Parameter(names = {"--gradle-engine"}, description = "How the Gradle builds are run: 'wrapper' (the generated " +
+            "gradlew as a subprocess) or 'tooling-api' (embedded Tooling API with resolution progress reporting)",
+            order = 14)
+    private String gradleEngine = GradleEngine.WRAPPER.getId();
+
+    @Parameter(names = {"--gradle-workers"}, description = "Gradle workers, the limit of parallel dependency downloads " +
+            "within a resolution. Default: max(8, 2 x CPU cores)", order = 15)
+    private Integer gradleWorkers;
+
+    /** The outcome of one version, for the summary. */
+    private record Outcome(String version, String gradleVersion, int modules, long millis, String error) {
+    }
+
+    @Override
+    public void run() {
+        if (concurrency < 1) {
+            throw new RuntimeException("--concurrency must be at least 1");
+        }
+        if (gradleUserHome == null) {
+            gradleUserHome = DefaultPaths.getDefaultGradleUserHome();
+        }
+        if (workspaceDir == null) {
+            workspaceDir = DefaultPaths.getDefaultWorkspaceRoot();
+        }
+        Set<String> versions = new LinkedHashSet<>(jmixVersions);
+        versions.forEach(JmixVersion::from);
+        SubscriptionPlan subscriptionPlan = SubscriptionPlan.fromId(commercialSubscriptionPlan);
+        GradleEngine engine = GradleEngine.fromId(gradleEngine);
+
+        log.info("Jmix versions: {}", versions);
+        log.info("Resolve commercial addons: {}", resolveCommercialAddons);
+        log.info("Jmix commercial subscription plan: {}", subscriptionPlan);
+        log.info("Gradle user home directory: {}", Paths.get(gradleUserHome).toAbsolutePath().normalize());
+        log.info("Resolving {} version(s), {} at a time", versions.size(), concurrency);
+        JmixResolveBuild build = new JmixResolveBuild(resolveCommercialAddons, subscriptionPlan, jmixLicenseKey,
+                publicRepository, premiumRepository, repositories, gradleJvmArgs, gradleWorkers, noSources);
+
+        List<JmixGradleClient> clients = new ArrayList<>();
+        List<Future<Outcome>> futures = new ArrayList<>();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, versions.size()), r -> {
+            Thread thread = new Thread(r, "resolve-batch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Outcome> outcomes = new ArrayList<>();
+        try {
+            for (String version : versions) {
+                futures.add(executor.submit(() -> resolve(version, build, engine, clients)));
+            }
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while resolving the batch", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch resolution failed", e.getCause());
+        } finally {
+            executor.shutdown();
+            synchronized (clients) {
+                JmixGradleClient.stopDaemons(clients);
+            }
+        }
+
+        logSummary(outcomes);
+        long failed = outcomes.stream().filter(outcome -> outcome.error() != null).count();
+        if (failed > 0) {
+            throw new RuntimeException(failed + " of " + outcomes.size() + " Jmix version(s) failed to resolve");
+        }
+        log.info("Resolving the batch completed successfully");
+    }
+
+    private Outcome resolve(String jmixVersion, JmixResolveBuild build, GradleEngine engine,
+                            List<JmixGradleClient> clients) {
+        long start = System.currentTimeMillis();
+        JmixVersion parsedVersion = JmixVersion.from(jmixVersion);
+        String effectiveGradleVersion = null;
+        int moduleCount = 0;
+        try {
+            List<String> modules = build.modules(jmixVersion);
+            moduleCount = modules.size();
+
+            WorkspaceManager workspaceManager = new WorkspaceManager(Paths.get(workspaceDir, "jmix-" + jmixVersion));
+            effectiveGradleVersion = workspaceManager.effectiveGradleVersion(parsedVersion, null);
+            log.info("Jmix {}: resolving {} module(s) with Gradle {}", jmixVersion, moduleCount, effectiveGradleVersion);
+            Path projectDir = workspaceManager.prepare(parsedVersion, effectiveGradleVersion);
+
+            // The plugin version and the Gradle version follow each Jmix version, as resolve-jmix does by default.
+            GradleArgs gradleArgs = build.gradleArgs(jmixVersion, jmixVersion, modules);
+            if (resolutionManifestDir != null) {
+                Path manifestPath = Paths.get(resolutionManifestDir, "jmix-" + jmixVersion + ".resolution")
+                        .toAbsolutePath().normalize();
+                gradleArgs.prop("resolutionManifest", manifestPath.toString());
+            }
+
+            JmixGradleClient gradleClient = new JmixGradleClient(projectDir, gradleUserHome)
+                    .engine(engine)
+                    .useDaemon(gradleDaemonIdleTimeout);
+            synchronized (clients) {
+                clients.add(gradleClient);
+            }
+            gradleClient.runTask("resolveAll", gradleArgs);
+            log.info("Jmix {}: resolved", jmixVersion);
+            return new Outcome(jmixVersion, effectiveGradleVersion, moduleCount, System.currentTimeMillis() - start, null);
+        } catch (RuntimeException e) {
+            log.error("Jmix {}: resolution failed", jmixVersion, e);
+            return new Outcome(jmixVersion, effectiveGradleVersion, moduleCount, System.currentTimeMillis() - start,
+                    e.getMessage());
+        }
+    }
+
+    private static void logSummary(List<Outcome> outcomes) {
+        StringBuilder summary = new StringBuilder("Batch summary:");
+        for (Outcome outcome : outcomes) {
+            summary.append(String.format("%n  %-12s %-7s Gradle %-8s %4d module(s) %6d s%s", outcome.version(),
+                    outcome.error() == null ? "OK" : "FAILED", outcome.gradleVersion(), outcome.modules(),
+                    outcome.millis() / 1000, outcome.error() == null ? "" : "  " + outcome.error()));
+        }
+        log.info("{}", summary);
+    }
+}
@@ -3,7 +3,9 @@ package io.jmix.dependency.cli.command;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import io.jmix.dependency.cli.dependency.SubscriptionPlan;
+import io.jmix.dependency.cli.export.ResolutionManifest;
 import io.jmix.dependency.cli.gradle.GradleArgs;
+import io.jmix.dependency.cli.gradle.GradleEngine;
 import io.jmix.dependency.cli.gradle.JmixGradleClient;
 import io.jmix.dependency.cli.version.JmixVersion;
 import io.jmix.dependency.cli.workspace.WorkspaceManager;
@@ -13,12 +15,13 @@ import org.slf4j.LoggerFactory;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-
-import static io.jmix.dependency.cli.dependency.DependencyScope.JVM;
-import static io.jmix.dependency.cli.dependency.JmixDependencies.getVersionSpecificJmixDependencies;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Parameters(commandDescription = "Resolves Jmix dependencies")
 public class ResolveJmixCommand implements BaseCommand {
@@ -71,8 +74,41 @@ public class ResolveJmixCommand implements BaseCommand {
             + JmixGradleClient.DEFAULT_GRADLE_JVM_ARGS, order = 12)
     private String gradleJvmArgs;
 
+    @Parameter(names = {"--resolution-manifest"}, description = "Write the resolved module versions (per " +
+            "configuration) to this file, for a filtered 'export --resolution-manifest'", order = 13)
+    private String resolutionManifest;
+
+    @Parameter(names = {"--gradle-daemon"}, description = "Keep the Gradle daemon running after the build and reuse " +
+            "a running one with the same JVM args, e.g. across the commands of a batch", order = 14)
+    private boolean gradleDaemon;
+
+    @Parameter(names = {"--gradle-daemon-idle-timeout"}, description = "Minutes a --gradle-daemon daemon waits for " +
+            "the next build before it exits", order = 15)
+    private int gradleDaemonIdleTimeout = JmixGradleClient.DEFAULT_DAEMON_IDLE_TIMEOUT_MINUTES;
+
+    @Parameter(names = {"--stop-gradle-daemon"}, description = "Stop the Gradle daemons of this Gradle user home " +
+            "when the build is done, e.g. in the last command of a batch. This runs 'gradlew --stop', which stops every " +
+            "daemon of the build's Gradle version in that user home, including those of unrelated concurrent builds", order = 16)
+    private boolean stopGradleDaemon;
+
+    @Parameter(names = {"--gradle-engine"}, description = "How the Gradle build is run: 'wrapper' (the generated " +
+            "gradlew as a subprocess) or 'tooling-api' (embedded Tooling API with resolution progress reporting)",
+            order = 17)
+    private String gradleEngine = GradleEngine.WRAPPER.getId();
+
+    @Parameter(names = {"--shards"}, description = "Split the isolated per-module resolution across this many " +
+            "Gradle builds that run in parallel against the shared Gradle user home", order = 18)
+    private int shards = 1;
+
+    @Parameter(names = {"--gradle-workers"}, description = "Gradle workers, the limit of parallel dependency downloads " +
+            "within a resolution. Default: max(8, 2 x CPU cores)", order = 19)
+    private Integer gradleWorkers;
+
     @Override
     public void run() {
+        if (shards < 1) {
+            throw new RuntimeException("--shards must be at least 1");
+        }
         JmixVersion parsedVersion = JmixVersion.from(jmixVersion);
         if (jmixPluginVersion == null) {
             jmixPluginVersion = jmixVersion;
@@ -91,9 +127,12 @@ public class ResolveJmixCommand implements BaseCommand {
         log.info("Jmix commercial subscription plan: {}", subscriptionPlan);
         log.info("Gradle user home directory: {}", Paths.get(gradleUserHome).toAbsolutePath().normalize());
 
-        Set<String> jmixDependencies = getVersionSpecificJmixDependencies(JVM, jmixVersion, resolveCommercialAddons, subscriptionPlan);
-        List<String> modules = new ArrayList<>(jmixDependencies);
-        modules.sort(Comparator.naturalOrder());
+        List<String> modules = build().modules(jmixVersion);
+        if (shards > 1 && modules.size() > 1) {
+            resolveSharded(parsedVersion, modules);
+            log.info("Resolving Jmix dependencies completed successfully");
+            return;
+        }
         log.info("Resolving {} Jmix module(s) in a single Gradle build", modules.size());
 
         // Generate the (single, unified) resolution project for this exact version, then resolve every
@@ -104,18 +143,130 @@ public class ResolveJmixCommand implements BaseCommand {
         log.info("Gradle version: {}", effectiveGradleVersion);
         Path projectDir = workspaceManager.prepare(parsedVersion, effectiveGradleVersion);
 
-        GradleArgs gradleArgs = GradleArgs.create()
-                .jmix(jmixVersion, jmixPluginVersion, jmixLicenseKey, publicRepository, premiumRepository, repositories)
-                .modules(modules)
-                .gradleJvmArgs(gradleJvmArgs)
-                .flag("isolatedResolution")
-                .raw("--stacktrace")
-                .raw("--info");
-        if (noSources) {
-            gradleArgs.flag("skipSources");
+        GradleArgs gradleArgs = gradleArgs(modules);
+        if (resolutionManifest != null) {
+            Path manifestPath = Paths.get(resolutionManifest).toAbsolutePath().normalize();
+            log.info("Resolution manifest: {}", manifestPath);
+            gradleArgs.prop("resolutionManifest", manifestPath.toString());
         }
 
-        new JmixGradleClient(projectDir, gradleUserHome).runTask("resolveAll", gradleArgs);
+        JmixGradleClient gradleClient = gradleClient(projectDir);
+        try {
+            gradleClient.runTask("resolveAll", gradleArgs);
+        } finally {
+            if (stopGradleDaemon) {
+                gradleClient.stopDaemon();
+            }
+        }
         log.info("Resolving Jmix dependencies completed successfully");
     }
+
+    /**
+     * Resolves the modules in {@code --shards} parallel builds, each in its own workspace
+     * ({@code <workspace-dir>/shard-<i>/project}) against the shared Gradle user home. Shard i resolves the isolated
+     * configurations of every n-th module and shard 0 also the all-modules classpaths (see
+     * {@code resolve-support.gradle}). The cache scan of recovery pass B has to see what all shards left in the
+     * cache, so it runs once the shards are done, in one more build in the workspace of shard 0. The resolution
+     * manifests of all these builds are merged into {@code --resolution-manifest}.
+     */
+    private void resolveSharded(JmixVersion parsedVersion, List<String> modules) {
+        int shardCount = Math.min(shards, modules.size());
+        log.info("Resolving {} Jmix module(s) in {} parallel Gradle builds", modules.size(), shardCount);
+        String effectiveGradleVersion = new WorkspaceManager(Paths.get(workspaceDir))
+                .effectiveGradleVersion(parsedVersion, gradleVersion);
+        log.info("Gradle version: {}", effectiveGradleVersion);
+
+        List<Path> manifests = new ArrayList<>();
+        List<JmixGradleClient> clients = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread thread = new Thread(r, "resolve-shard-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<String> failedShards = new ArrayList<>();
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                int shard = i;
+                Path manifest = resolutionManifest != null ? Paths.get(workspaceDir, "shard-" + shard + ".resolution")
+                        .toAbsolutePath().normalize() : null;
+                manifests.add(manifest);
+                futures.add(executor.submit(() -> {
+                    Path projectDir = new WorkspaceManager(Paths.get(workspaceDir, "shard-" + shard))
+                            .prepare(parsedVersion, effectiveGradleVersion);
+                    GradleArgs gradleArgs = gradleArgs(modules)
+                            .prop("isolatedShard", shard + "/" + shardCount)
+                            .flag("skipCacheScan");
+                    if (manifest != null) {
+                        gradleArgs.prop("resolutionManifest", manifest.toString());
+                    }
+                    JmixGradleClient gradleClient = gradleClient(projectDir);
+                    clients.add(gradleClient);
+                    gradleClient.runTask("resolveAll", gradleArgs);
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                    log.info("Shard {} of {} resolved", i + 1, shardCount);
+                } catch (ExecutionException e) {
+                    log.error("Shard {} of {} failed", i + 1, shardCount, e.getCause());
+                    failedShards.add(String.valueOf(i + 1));
+                }
+            }
+            if (!failedShards.isEmpty()) {
+                throw new RuntimeException("Resolution shard(s) " + String.join(", ", failedShards) + " of " +
+                        shardCount + " failed");
+            }
+
+            log.info("Scanning the Gradle cache for versions the shards left without a jar");
+            Path projectDir = Paths.get(workspaceDir, "shard-0", "project");
+            GradleArgs gradleArgs = gradleArgs(modules).flag("cacheScanOnly");
+            if (resolutionManifest != null) {
+                Path manifest = Paths.get(workspaceDir, "cache-scan.resolution").toAbsolutePath().normalize();
+                manifests.add(manifest);
+                gradleArgs.prop("resolutionManifest", manifest.toString());
+            }
+            JmixGradleClient gradleClient = gradleClient(projectDir);
+            clients.add(gradleClient);
+            gradleClient.runTask("resolveAll", gradleArgs);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the resolution shards", e);
+        } finally {
+            executor.shutdown();
+            if (stopGradleDaemon) {
+                JmixGradleClient.stopDaemons(clients);
+            }
+        }
+
+        if (resolutionManifest != null) {
+            ResolutionManifest merged = new ResolutionManifest();
+            manifests.forEach(manifest -> merged.merge(ResolutionManifest.load(manifest)));
+            Path manifestPath = Paths.get(resolutionManifest).toAbsolutePath().normalize();
+            merged.write(manifestPath);
+            log.info("Resolution manifest: {} ({} configuration(s) from {} build(s))", manifestPath,
+                    merged.configurations().size(), manifests.size());
+        }
+    }
+
+    private GradleArgs gradleArgs(List<String> modules) {
+        return build().gradleArgs(jmixVersion, jmixPluginVersion, modules);
+    }
+
+    private JmixResolveBuild build() {
+        return new JmixResolveBuild(resolveCommercialAddons, SubscriptionPlan.fromId(commercialSubscriptionPlan),
+                jmixLicenseKey, publicRepository, premiumRepository, repositories, gradleJvmArgs, gradleWorkers, noSources);
+    }
+
+    private JmixGradleClient gradleClient(Path projectDir) {
+        JmixGradleClient gradleClient = new JmixGradleClient(projectDir, gradleUserHome)
+                .engine(GradleEngine.fromId(gradleEngine));
+        if (gradleDaemon) {
+            gradleClient.useDaemon(gradleDaemonIdleTimeout);
+        }
+        return gradleClient;
+    }
 }
@@ -3,6 +3,7 @@ package io.jmix.dependency.cli.command;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import io.jmix.dependency.cli.gradle.GradleArgs;
+import io.jmix.dependency.cli.gradle.GradleEngine;
 import io.jmix.dependency.cli.gradle.JmixGradleClient;
 import io.jmix.dependency.cli.version.JmixVersion;
 import io.jmix.dependency.cli.workspace.WorkspaceManager;
@@ -57,6 +58,32 @@ public class ResolveLibCommand implements BaseCommand {
             + JmixGradleClient.DEFAULT_GRADLE_JVM_ARGS, order = 12)
     private String gradleJvmArgs;
 
+    @Parameter(names = {"--resolution-manifest"}, description = "Write the resolved module versions (per " +
+            "configuration) to this file, for a filtered 'export --resolution-manifest'", order = 13)
+    private String resolutionManifest;
+
+    @Parameter(names = {"--gradle-daemon"}, description = "Keep the Gradle daemon running after the build and reuse " +
+            "a running one with the same JVM args, e.g. across the commands of a batch", order = 14)
+    private boolean gradleDaemon;
+
+    @Parameter(names = {"--gradle-daemon-idle-timeout"}, description = "Minutes a --gradle-daemon daemon waits for " +
+            "the next build before it exits", order = 15)
+    private int gradleDaemonIdleTimeout = JmixGradleClient.DEFAULT_DAEMON_IDLE_TIMEOUT_MINUTES;
+
+    @Parameter(names = {"--stop-gradle-daemon"}, description = "Stop the Gradle daemons of this Gradle user home " +
+            "when the build is done, e.g. in the last command of a batch. This runs 'gradlew --stop', which stops every " +
+            "daemon of the build's Gradle version in that user home, including those of unrelated concurrent builds", order = 16)
+    private boolean stopGradleDaemon;
+
+    @Parameter(names = {"--gradle-engine"}, description = "How the Gradle build is run: 'wrapper' (the generated " +
+            "gradlew as a subprocess) or 'tooling-api' (embedded Tooling API with resolution progress reporting)",
+            order = 17)
+    private String gradleEngine = GradleEngine.WRAPPER.getId();
+
+    @Parameter(names = {"--gradle-workers"}, description = "Gradle workers, the limit of parallel dependency downloads " +
+            "within a resolution. Default: max(8, 2 x CPU cores)", order = 18)
+    private Integer gradleWorkers;
+
     @Override
     public void run() {
         if (jmixPluginVersion == null) {
@@ -86,14 +113,31 @@ public class ResolveLibCommand implements BaseCommand {
                 .jmix(jmixVersion, jmixPluginVersion, jmixLicenseKey, publicRepository, premiumRepository, repositories)
                 .modules(List.of(dependency))
                 .gradleJvmArgs(gradleJvmArgs)
+                .gradleWorkers(gradleWorkers)
                 .flag("isolatedResolution")
                 .raw("--stacktrace")
                 .raw("--info");
         if (noSources) {
             gradleArgs.flag("skipSources");
         }
+        if (resolutionManifest != null) {
+            Path manifestPath = Paths.get(resolutionManifest).toAbsolutePath().normalize();
+            log.info("Resolution manifest: {}", manifestPath);
+            gradleArgs.prop("resolutionManifest", manifestPath.toString());
+        }
 
-        new JmixGradleClient(projectDir, gradleUserHome).runTask("resolveAll", gradleArgs);
+        JmixGradleClient gradleClient = new JmixGradleClient(projectDir, gradleUserHome)
+                .engine(GradleEngine.fromId(gradleEngine));
+        if (gradleDaemon) {
+            gradleClient.useDaemon(gradleDaemonIdleTimeout);
+        }
+        try {
+            gradleClient.runTask("resolveAll", gradleArgs);
+        } finally {
+            if (stopGradleDaemon) {
+                gradleClient.stopDaemon();
+            }
+        }
         log.info("Resolving a dependency completed successfully");
     }
 }
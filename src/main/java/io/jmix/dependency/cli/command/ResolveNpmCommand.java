@@ -4,6 +4,7 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import io.jmix.dependency.cli.dependency.SubscriptionPlan;
 import io.jmix.dependency.cli.gradle.GradleArgs;
+import io.jmix.dependency.cli.gradle.GradleEngine;
 import io.jmix.dependency.cli.gradle.JmixGradleClient;
 import io.jmix.dependency.cli.npm.PackageLock;
 import io.jmix.dependency.cli.version.JmixVersion;
@@ -82,6 +83,28 @@ public class ResolveNpmCommand implements BaseCommand {
             + JmixGradleClient.DEFAULT_GRADLE_JVM_ARGS, order = 12)
     private String gradleJvmArgs;
 
+    @Parameter(names = {"--gradle-daemon"}, description = "Keep the Gradle daemon running after the build and reuse " +
+            "a running one with the same JVM args, e.g. across the commands of a batch", order = 13)
+    private boolean gradleDaemon;
+
+    @Parameter(names = {"--gradle-daemon-idle-timeout"}, description = "Minutes a --gradle-daemon daemon waits for " +
+            "the next build before it exits", order = 14)
+    private int gradleDaemonIdleTimeout = JmixGradleClient.DEFAULT_DAEMON_IDLE_TIMEOUT_MINUTES;
+
+    @Parameter(names = {"--stop-gradle-daemon"}, description = "Stop the Gradle daemons of this Gradle user home " +
+            "when the build is done, e.g. in the last command of a batch. This runs 'gradlew --stop', which stops every " +
+            "daemon of the build's Gradle version in that user home, including those of unrelated concurrent builds", order = 15)
+    private boolean stopGradleDaemon;
+
+    @Parameter(names = {"--gradle-engine"}, description = "How the Gradle build is run: 'wrapper' (the generated " +
+            "gradlew as a subprocess) or 'tooling-api' (embedded Tooling API with resolution progress reporting)",
+            order = 16)
+    private String gradleEngine = GradleEngine.WRAPPER.getId();
+
+    @Parameter(names = {"--gradle-workers"}, description = "Gradle workers, the limit of parallel dependency downloads " +
+            "within a resolution. Default: max(8, 2 x CPU cores)", order = 17)
+    private Integer gradleWorkers;
+
     @Override
     public void run() {
         JmixVersion parsedVersion = JmixVersion.from(jmixVersion);
@@ -121,12 +144,24 @@ public class ResolveNpmCommand implements BaseCommand {
                 .jmix(jmixVersion, jmixPluginVersion, jmixLicenseKey, publicRepository, premiumRepository, repositories)
                 .modules(modules)
                 .gradleJvmArgs(gradleJvmArgs)
+                .gradleWorkers(gradleWorkers)
                 .raw("--stacktrace")
                 .raw("--info");
 
         // Vaadin generates package.json, runs npm install (which populates the seeded package-lock.json),
         // builds the bundle, then deletes the generated frontend files - but it leaves the pre-existing lock.
-        new JmixGradleClient(projectDir, gradleUserHome).runTask("vaadinBuildFrontend", args);
+        JmixGradleClient gradleClient = new JmixGradleClient(projectDir, gradleUserHome)
+                .engine(GradleEngine.fromId(gradleEngine));
+        if (gradleDaemon) {
+            gradleClient.useDaemon(gradleDaemonIdleTimeout);
+        }
+        try {
+            gradleClient.runTask("vaadinBuildFrontend", args);
+        } finally {
+            if (stopGradleDaemon) {
+                gradleClient.stopDaemon();
+            }
+        }
 
         copyResolvedLock(projectDir);
         extractDevBundleLock();
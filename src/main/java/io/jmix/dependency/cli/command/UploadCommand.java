@@ -2,7 +2,10 @@ package io.jmix.dependency.cli.command;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.upload.ArtifactsInput;
+import io.jmix.dependency.cli.upload.NexusConnectionSettings;
 import io.jmix.dependency.cli.upload.NexusRepositoryManager;
+import io.jmix.dependency.cli.upload.ParallelUploader;
 import io.jmix.dependency.cli.upload.model.Artifact;
 import io.jmix.dependency.cli.upload.model.ArtifactsBundle;
 import org.apache.commons.io.FilenameUtils;
@@ -13,8 +16,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 
 @Parameters(commandDescription = "Uploads resolved and exported artifacts to Nexus")
 public class UploadCommand implements BaseCommand {
@@ -35,59 +39,147 @@ public class UploadCommand implements BaseCommand {
 
     //todo rename parameter?
     @Parameter(names = {"--artifacts-dir"},
-            description = "Path to directory with exported artifacts to be uploaded, e.g. /opt/jmix/dependencies",
+            description = "Path to directory with exported artifacts to be uploaded, e.g. /opt/jmix/dependencies, " +
+                    "or to a zip of one (export --archive, diff-export --archive)",
             required = true)
     private String artifactsDirectoryPath;
 
+    @Parameter(names = {"--upload-threads"}, description = "Number of bundles uploaded concurrently")
+    private int uploadThreads = 4;
+
+    @Parameter(names = {"--upload-queue-size"},
+            description = "How many bundles may wait for a free upload worker before the directory walk pauses")
+    private int uploadQueueSize = 64;
+
+    @Parameter(names = {"--upload-attempts"}, description = "Attempts per bundle before it is reported as failed (1 = no retry)")
+    private int uploadAttempts = 3;
+
+    @Parameter(names = {"--no-prefetch"},
+            description = "Probe every bundle separately instead of listing the repository contents once up front")
+    private boolean noPrefetch;
+
+    @Parameter(names = {"--upload-checksums"},
+            description = "After each bundle, also PUT the .sha1/.sha256/.sha512 sidecars written by export --checksums. " +
+                    "Nexus still hashes every asset itself; this only publishes the export's checksum files, at one " +
+                    "extra request per sidecar. A sidecar that fails is logged, not retried with the bundle")
+    private boolean uploadChecksums;
+
+    @Parameter(names = {"--http-max-connections"},
+            description = "Pooled HTTP connections to Nexus (default: the larger of 8 and the number of upload workers)")
+    private Integer httpMaxConnections;
+
+    @Parameter(names = {"--http-keep-alive"}, description = "Seconds an idle pooled HTTP connection is kept for reuse")
+    private int httpKeepAliveSeconds = NexusConnectionSettings.DEFAULT_KEEP_ALIVE_SECONDS;
+
+    @Parameter(names = {"--http-connect-timeout"}, description = "HTTP connect timeout in seconds")
+    private int httpConnectTimeoutSeconds = NexusConnectionSettings.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+
+    @Parameter(names = {"--http-response-timeout"}, description = "HTTP response timeout in seconds")
+    private int httpResponseTimeoutSeconds = NexusConnectionSettings.DEFAULT_RESPONSE_TIMEOUT_SECONDS;
+
     @Override
     public void run() {
-        Map<String, ArtifactsBundle> artifactBundles = new TreeMap<>();
-
         log.info("Artifacts directory: {}", Paths.get(artifactsDirectoryPath).toAbsolutePath().normalize());
 
-        NexusRepositoryManager nexusRepositoryManager = new NexusRepositoryManager(nexusUrl, repositoryName, username, password);
-        try {
-            Path rootLocalRepoDir = Paths.get(artifactsDirectoryPath);
-            Files.walkFileTree(rootLocalRepoDir, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    log.debug("Processing file: {}", file);
-                    if (!canProcessFile(file)) {
-                        log.debug("Cannot process file {}. The file will not be uploaded", file.getFileName());
+        try (ArtifactsInput input = ArtifactsInput.open(Paths.get(artifactsDirectoryPath));
+             NexusRepositoryManager nexusRepositoryManager = new NexusRepositoryManager(nexusUrl, repositoryName, username, password,
+                     connectionSettings())) {
+            upload(nexusRepositoryManager, input.dir());
+        }
+    }
+
+    private void upload(NexusRepositoryManager nexusRepositoryManager, Path rootLocalRepoDir) {
+        Set<String> uploadedComponents = noPrefetch ? null : prefetchUploadedComponents(nexusRepositoryManager);
+
+        log.info("Artifact uploading started: {} worker(s)", uploadThreads);
+
+        ParallelUploader.Summary summary;
+        try (ParallelUploader uploader = new ParallelUploader(uploadThreads, uploadQueueSize, uploadAttempts)) {
+            // A version directory is one bundle. Its files are visited together, so the bundle is complete - and
+            // handed to the uploader - once the walk leaves the directory; submit() blocks the walk while the
+            // uploader's queue is full.
+            Map<Path, ArtifactsBundle> openBundles = new HashMap<>();
+            try {
+                Files.walkFileTree(rootLocalRepoDir, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        log.debug("Processing file: {}", file);
+                        if (!canProcessFile(file)) {
+                            log.debug("Cannot process file {}. The file will not be uploaded", file.getFileName());
+                            return FileVisitResult.CONTINUE;
+                        }
+                        Path versionDir = file.getParent();
+                        Path artifactDir = versionDir.getParent();
+                        Path relativizedGroupPath = rootLocalRepoDir.relativize(artifactDir).getParent();
+                        String groupId = relativizedGroupPath.toString().replace(File.separator, ".");
+                        String artifactId = artifactDir.getFileName().toString();
+                        String version = versionDir.getFileName().toString();
+                        ArtifactsBundle artifactsBundle = openBundles.computeIfAbsent(versionDir,
+                                (key) -> new ArtifactsBundle(groupId, artifactId, version));
+                        Artifact artifact = new Artifact(groupId, artifactId, version, extractClassifier(file, artifactId, version), file.toFile());
+                        artifactsBundle.addArtifact(artifact);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                        ArtifactsBundle artifactsBundle = openBundles.remove(dir);
+                        if (artifactsBundle != null) {
+                            submit(uploader, nexusRepositoryManager, uploadedComponents, artifactsBundle);
+                        }
                         return FileVisitResult.CONTINUE;
                     }
-                    Path versionDir = file.getParent();
-                    Path artifactDir = versionDir.getParent();
-                    Path relativizedGroupPath = rootLocalRepoDir.relativize(artifactDir).getParent();
-                    String groupId = relativizedGroupPath.toString().replace(File.separator, ".");
-                    String artifactId = artifactDir.getFileName().toString();
-                    String version = versionDir.getFileName().toString();
-                    String mavenCoordinates = groupId + ":" + artifactId + ":" + version;
-                    ArtifactsBundle artifactsBundle = artifactBundles.computeIfAbsent(mavenCoordinates,
-                            (key) -> new ArtifactsBundle(groupId, artifactId, version));
-                    Artifact artifact = new Artifact(groupId, artifactId, version, extractClassifier(file, artifactId, version), file.toFile());
-                    artifactsBundle.addArtifact(artifact);
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } catch (IOException e) {
-            log.error("Error on walking through local repository directory", e);
+                });
+            } catch (IOException e) {
+                log.error("Error on walking through local repository directory", e);
+            }
+            summary = uploader.awaitCompletion();
+        }
+
+        log.info(String.format("Uploaded %d bundle(s) (%.1f MB), %d already present, %d failed in %.1f s: %.2f bundles/s, %.2f MB/s",
+                summary.uploaded.get(), summary.uploadedBytes.get() / (1024.0 * 1024.0), summary.skipped.get(),
+                summary.failed.size(), summary.elapsedSeconds(), summary.unitsPerSecond(), summary.megabytesPerSecond()));
+        if (!summary.failed.isEmpty()) {
+            throw new RuntimeException(summary.failed.size() + " bundle(s) failed to upload: " + summary.failed);
         }
 
-        log.info("Artifact uploading started");
+        log.info("Upload completed successfully");
+    }
 
-        for (ArtifactsBundle artifactsBundle : artifactBundles.values()) {
-            Artifact pomArtifact = artifactsBundle.getArtifacts().stream().filter(artifact -> "pom".equals(artifact.getExtension()))
-                    .findAny()
-                    .orElseThrow(() -> new RuntimeException("Cannot find POM artifact for " + artifactsBundle.getMavenCoordinates()));
-            if (!nexusRepositoryManager.isArtifactUploaded(pomArtifact)) {
-                nexusRepositoryManager.uploadArtifacts(artifactsBundle);
-            } else {
+    private void submit(ParallelUploader uploader, NexusRepositoryManager nexusRepositoryManager,
+                        Set<String> uploadedComponents, ArtifactsBundle artifactsBundle) {
+        Artifact pomArtifact = artifactsBundle.getArtifacts().stream().filter(artifact -> "pom".equals(artifact.getExtension()))
+                .findAny()
+                .orElseThrow(() -> new RuntimeException("Cannot find POM artifact for " + artifactsBundle.getMavenCoordinates()));
+        long bundleSize = artifactsBundle.getArtifacts().stream().mapToLong(artifact -> artifact.getFile().length()).sum();
+        uploader.submit(artifactsBundle.getMavenCoordinates(), bundleSize, () -> {
+            boolean uploaded = uploadedComponents != null
+                    ? uploadedComponents.contains(artifactsBundle.getMavenCoordinates())
+                    : nexusRepositoryManager.isArtifactUploaded(pomArtifact);
+            if (uploaded) {
                 log.debug("Artifact {} already uploaded", artifactsBundle.getMavenCoordinates());
+                return false;
             }
-        }
+            nexusRepositoryManager.uploadArtifacts(artifactsBundle);
+            if (uploadChecksums) {
+                // Retried per sidecar and never thrown: a failure here must not re-POST the stored bundle.
+                nexusRepositoryManager.uploadChecksums(artifactsBundle, uploadAttempts);
+            }
+            return true;
+        });
+    }
 
-        log.info("Upload completed successfully");
+    /**
+     * Lists the repository once so the upload loop can decide locally which bundles are already present. Falls back
+     * to per-bundle probes (returns {@code null}) when the listing is not possible, e.g. the user lacks browse rights.
+     */
+    private Set<String> prefetchUploadedComponents(NexusRepositoryManager nexusRepositoryManager) {
+        try {
+            return nexusRepositoryManager.listUploadedMavenComponents();
+        } catch (RuntimeException e) {
+            log.warn("Unable to list repository contents, every bundle will be checked separately: {}", e.getMessage());
+            return null;
+        }
     }
 
     private boolean canProcessFile(Path file) {
@@ -104,4 +196,11 @@ public class UploadCommand implements BaseCommand {
                 ? fileNameNoExt.substring(prefix.length())
                 : null;
     }
+
+    private NexusConnectionSettings connectionSettings() {
+        int maxConnections = httpMaxConnections != null ? httpMaxConnections
+                : Math.max(NexusConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE, uploadThreads);
+        return new NexusConnectionSettings(maxConnections, httpKeepAliveSeconds, httpConnectTimeoutSeconds,
+                httpResponseTimeoutSeconds);
+    }
 }
@@ -2,6 +2,8 @@ package io.jmix.dependency.cli.command;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import io.jmix.dependency.cli.upload.ArtifactsInput;
+import io.jmix.dependency.cli.upload.NexusConnectionSettings;
 import io.jmix.dependency.cli.upload.NexusRepositoryManager;
 import io.jmix.dependency.cli.upload.model.ArtifactNpm;
 import org.slf4j.Logger;
@@ -12,6 +14,7 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 @Parameters(commandDescription = "Uploads resolved and exported artifacts to Nexus")
@@ -32,18 +35,42 @@ public class UploadNpmCommand implements BaseCommand {
     private String password;
 
     @Parameter(names = {"--artifacts-dir"},
-            description = "Path to directory with exported artifacts to be uploaded, e.g. /opt/jmix/dependencies",
+            description = "Path to directory with exported artifacts to be uploaded, e.g. /opt/jmix/dependencies, " +
+                    "or to a zip of one (export --archive, diff-export --archive)",
             required = true)
     private String artifactsDirectoryPath;
 
+    @Parameter(names = {"--no-prefetch"},
+            description = "Probe every package separately instead of listing the repository contents once up front")
+    private boolean noPrefetch;
+
+    @Parameter(names = {"--http-max-connections"}, description = "Pooled HTTP connections to Nexus")
+    private Integer httpMaxConnections;
+
+    @Parameter(names = {"--http-keep-alive"}, description = "Seconds an idle pooled HTTP connection is kept for reuse")
+    private int httpKeepAliveSeconds = NexusConnectionSettings.DEFAULT_KEEP_ALIVE_SECONDS;
+
+    @Parameter(names = {"--http-connect-timeout"}, description = "HTTP connect timeout in seconds")
+    private int httpConnectTimeoutSeconds = NexusConnectionSettings.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+
+    @Parameter(names = {"--http-response-timeout"}, description = "HTTP response timeout in seconds")
+    private int httpResponseTimeoutSeconds = NexusConnectionSettings.DEFAULT_RESPONSE_TIMEOUT_SECONDS;
+
     @Override
     public void run() {
+        log.info("Artifacts directory: {}", Paths.get(artifactsDirectoryPath).toAbsolutePath().normalize());
+
+        try (ArtifactsInput input = ArtifactsInput.open(Paths.get(artifactsDirectoryPath));
+             NexusRepositoryManager nexusRepositoryManager = new NexusRepositoryManager(nexusUrl, repositoryName, username, password,
+                     connectionSettings())) {
+            upload(nexusRepositoryManager, input.dir());
+        }
+    }
+
+    private void upload(NexusRepositoryManager nexusRepositoryManager, Path rootLocalRepoDir) {
         Map<String, ArtifactNpm> artifacts = new TreeMap<>();
 
-        log.info("Artifacts directory: {}", Paths.get(artifactsDirectoryPath).toAbsolutePath().normalize());
-        NexusRepositoryManager nexusRepositoryManager = new NexusRepositoryManager(nexusUrl, repositoryName, username, password);
         try {
-            Path rootLocalRepoDir = Paths.get(artifactsDirectoryPath);
             Files.walkFileTree(rootLocalRepoDir, new SimpleFileVisitor<>() {
                 @Override
                 public FileVisitResult visitFile(Path filePath, BasicFileAttributes attrs) throws IOException {
@@ -70,11 +97,16 @@ public class UploadNpmCommand implements BaseCommand {
             log.error("Error on walking through local repository directory", e);
         }
 
+        Set<String> uploadedPackages = noPrefetch ? null : prefetchUploadedPackages(nexusRepositoryManager);
+
         log.info("Artifact uploading started");
 
         for (ArtifactNpm artifact : artifacts.values()) {
             log.info("Process artifact '{}'", artifact.getAsset());
-            if (!nexusRepositoryManager.isNpmArtifactUploaded(artifact)) {
+            boolean uploaded = uploadedPackages != null
+                    ? uploadedPackages.contains(artifact.getModuleName() + "@" + artifact.getVersion())
+                    : nexusRepositoryManager.isNpmArtifactUploaded(artifact);
+            if (!uploaded) {
                 log.info("Start uploading artifact '{}'", artifact.getAsset());
                 nexusRepositoryManager.uploadNpmArtifacts(artifact);
             } else {
@@ -85,8 +117,27 @@ public class UploadNpmCommand implements BaseCommand {
         log.info("Upload completed successfully");
     }
 
+    /**
+     * Lists the repository once so the upload loop can decide locally which packages are already present. Falls back
+     * to per-package searches (returns {@code null}) when the listing is not possible.
+     */
+    private Set<String> prefetchUploadedPackages(NexusRepositoryManager nexusRepositoryManager) {
+        try {
+            return nexusRepositoryManager.listUploadedNpmPackages();
+        } catch (RuntimeException e) {
+            log.warn("Unable to list repository contents, every package will be checked separately: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private boolean canProcessFile(Path file) {
         String fileName = file.getFileName().toString();
         return fileName.endsWith(".tgz");
     }
+
+    private NexusConnectionSettings connectionSettings() {
+        int maxConnections = httpMaxConnections != null ? httpMaxConnections : NexusConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        return new NexusConnectionSettings(maxConnections, httpKeepAliveSeconds, httpConnectTimeoutSeconds,
+                httpResponseTimeoutSeconds);
+    }
 }
@@ -0,0 +1,148 @@
+package io.jmix.dependency.cli.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip archive the export commands write into directly ({@code --archive}), instead of filling a directory that is
+ * zipped afterwards - which wrote every artifact once and then read it back to compress it.
+ * <p>
+ * Files that are already compressed ({@code .jar}, {@code .tgz}, ...) are {@link ZipEntry#STORED stored}: deflating
+ * them again costs CPU for no gain. A stored entry needs its CRC up front, which is computed from the (page-cached)
+ * source before the archive is locked, so parallel export workers only serialize on the actual write.
+ * <p>
+ * The archive is written to {@code <file>.part} and moved into place by {@link #finish()}; closing it without
+ * finishing (the export failed) deletes the partial file.
+ */
+public class ArchiveWriter implements AutoCloseable {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(".jar", ".tgz", ".gz", ".zip", ".war", ".aar");
+
+    private final Path file;
+    private final Path partFile;
+    private final ZipOutputStream zip;
+    private final Set<String> names = new HashSet<>();
+    private boolean finished;
+
+    public ArchiveWriter(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+        this.partFile = this.file.resolveSibling(this.file.getFileName() + ".part");
+        try {
+            Files.createDirectories(this.file.getParent());
+            this.zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile), 1 << 16));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create archive " + file, e);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Adds {@code source} as entry {@code name} ({@code /}-separated). Returns {@code false} and writes nothing when
+     * the archive already has an entry of that name - the first one added wins, as in a directory export.
+     */
+    public boolean add(String name, Path source) throws IOException {
+        return add(name, source, null);
+    }
+
+    /**
+     * Like {@link #add(String, Path)}, also feeding the content to {@code checksums} (when not {@code null}) in a
+     * read that happens anyway: the CRC pass of a stored entry, otherwise the write itself.
+     */
+    public boolean add(String name, Path source, Checksums checksums) throws IOException {
+        FileTime lastModified = Files.getLastModifiedTime(source);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setLastModifiedTime(lastModified);
+        boolean stored = isCompressed(name);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            long size = 0;
+            byte[] buffer = new byte[1 << 16];
+            InputStream content = Files.newInputStream(source);
+            try (InputStream in = checksums != null ? checksums.digesting(content) : content) {
+                for (int n; (n = in.read(buffer)) > 0; ) {
+                    crc.update(buffer, 0, n);
+                    size += n;
+                }
+            }
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        }
+        synchronized (this) {
+            if (!names.add(name)) {
+                return false;
+            }
+            zip.putNextEntry(entry);
+            if (checksums != null && !stored) {
+                try (InputStream in = checksums.digesting(Files.newInputStream(source))) {
+                    in.transferTo(zip);
+                }
+            } else {
+                Files.copy(source, zip);
+            }
+            zip.closeEntry();
+        }
+        return true;
+    }
+
+    /** Adds a small generated entry (e.g. a checksum sidecar); returns {@code false} if the name is taken. */
+    public synchronized boolean add(String name, byte[] content) throws IOException {
+        if (!names.add(name)) {
+            return false;
+        }
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+        return true;
+    }
+
+    private static boolean isCompressed(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot));
+    }
+
+    /** Completes the archive and moves it to its final name. */
+    public synchronized void finish() {
+        try {
+            zip.close();
+            try {
+                Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            finished = true;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to complete archive " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (finished) {
+            return;
+        }
+        try {
+            zip.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            Files.deleteIfExists(partFile);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package io.jmix.dependency.cli.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed store shared by the exports of many releases ({@code --store-dir}).
+ * <p>
+ * Every exported file is kept once, as {@code blobs/sha256/<2 hex>/<64 hex>}, and the release directory gets a
+ * hard link to that blob. Third-party artifacts that are byte-identical across Jmix versions therefore take disk
+ * space once, however many release exports reference them. The hard link count doubles as the reference count:
+ * a blob with no link besides its own store entry belongs to no release any more, and {@link #collectGarbage}
+ * removes it.
+ * <p>
+ * Store and release directories must be on the same filesystem: where the hard link cannot be made,
+ * {@link #materialize} fails instead of copying. A copy would deduplicate nothing, and would leave a blob whose
+ * link count says "unreferenced" while a release still needs its content - {@link #collectGarbage} would delete it.
+ * For the same reason a blob added for a link that then fails is removed again, so every blob in the store has
+ * been linked at least once and its link count is the whole truth. Blobs are made read-only - a release directory
+ * must not be edited in place, since its files are shared.
+ */
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    public static class GcResult {
+        public int removed;
+        public long removedBytes;
+        public int kept;
+    }
+
+    private final Path root;
+    private final Path blobsDir;
+    private final Path tmpDir;
+    private final AtomicInteger added = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicLong addedBytes = new AtomicLong();
+
+    public BlobStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.blobsDir = this.root.resolve("blobs/sha256");
+        this.tmpDir = this.root.resolve("tmp");
+    }
+
+    /**
+     * Makes {@code target} a hard link to the blob holding the content of {@code source}, adding the blob when the
+     * store does not have it yet. Returns the SHA-256 (hex) of the content. Fails if the link cannot be made, e.g.
+     * because {@code target} is on another filesystem than the store.
+     * <p>
+     * The source is hashed first, so content the store already has (the common case across releases) costs one
+     * read and no write at all.
+     */
+    public String materialize(Path source, Path target) throws IOException {
+        return materialize(source, target, null);
+    }
+
+    /** Like {@link #materialize(Path, Path)}, also feeding the content to {@code checksums} in the same read. */
+    public String materialize(Path source, Path target, Checksums checksums) throws IOException {
+        String sha256 = sha256Of(source, checksums);
+        Path blob = blobPath(sha256);
+        boolean addedNow = false;
+        if (Files.exists(blob)) {
+            reused.incrementAndGet();
+        } else {
+            addedNow = addBlob(source, blob);
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            Files.createLink(target, blob);
+        } catch (IOException | UnsupportedOperationException e) {
+            if (addedNow && linkCount(blob) == 1) {
+                Files.deleteIfExists(blob);
+            }
+            throw new IOException("Cannot hard-link " + target + " to the export store " + root + " - the store and " +
+                    "the target directory must be on the same filesystem", e);
+        }
+        return sha256;
+    }
+
+    /** Returns whether this call added the blob ({@code false} if another worker was faster). */
+    private boolean addBlob(Path source, Path blob) throws IOException {
+        Files.createDirectories(tmpDir);
+        Files.createDirectories(blob.getParent());
+        Path tmp = Files.createTempFile(tmpDir, "blob", ".part");
+        try {
+            Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(tmp);
+            try {
+                // A link, unlike a move, never replaces a blob another worker has just added.
+                Files.createLink(blob, tmp);
+                blob.toFile().setReadOnly();
+                added.incrementAndGet();
+                addedBytes.addAndGet(size);
+                return true;
+            } catch (FileAlreadyExistsException e) {
+                reused.incrementAndGet();
+                return false;
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String sha256Of(Path source, Checksums checksums) throws IOException {
+        if (checksums != null) {
+            checksums.digest(source);
+            return checksums.sha256();
+        }
+        MessageDigest digest = sha256Digest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Path blobPath(String sha256) {
+        return blobsDir.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    /** E.g. {@code "12 blob(s) added (3.4 MB), 980 reused"}. */
+    public String summary() {
+        return added.get() + " blob(s) added (" + String.format("%.1f", addedBytes.get() / (1024.0 * 1024.0)) +
+                " MB), " + reused.get() + " reused";
+    }
+
+    /**
+     * Deletes blobs no release directory links to any more, and leftovers of interrupted exports. Must not run
+     * while an export into this store is in progress.
+     */
+    public GcResult collectGarbage(boolean dryRun) {
+        GcResult result = new GcResult();
+        if (!Files.isDirectory(blobsDir)) {
+            return result;
+        }
+        try {
+            Files.walkFileTree(blobsDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (linkCount(file) > 1) {
+                        result.kept++;
+                        return FileVisitResult.CONTINUE;
+                    }
+                    log.debug("Unreferenced blob: {}", file);
+                    result.removed++;
+                    result.removedBytes += attrs.size();
+                    if (!dryRun) {
+                        Files.delete(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            if (!dryRun && Files.isDirectory(tmpDir)) {
+                try (DirectoryStream<Path> parts = Files.newDirectoryStream(tmpDir)) {
+                    for (Path part : parts) {
+                        Files.deleteIfExists(part);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while collecting garbage in the export store " + root, e);
+        }
+        return result;
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        try {
+            return (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            throw new RuntimeException("The export store needs a filesystem with hard link counts (unix attributes)", e);
+        }
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.jmix.dependency.cli.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SHA-1, SHA-256 and SHA-512 of one file, computed while its bytes stream past for another reason (the copy into
+ * the export, the CRC of a zip entry, the content hash of the blob store), so the checksums cost no extra read.
+ * <p>
+ * They end up as Maven-style sidecars: {@code <file>.sha1}, {@code <file>.sha256} and {@code <file>.sha512}, each
+ * holding the lowercase hex digest.
+ */
+public class Checksums {
+
+    /** Sidecar extensions, in the order of {@link #sidecars()}. */
+    public static final List<String> SIDECAR_EXTENSIONS = List.of("sha1", "sha256", "sha512");
+
+    private final MessageDigest sha1 = digest("SHA-1");
+    private final MessageDigest sha256 = digest("SHA-256");
+    private final MessageDigest sha512 = digest("SHA-512");
+    private Map<String, String> result;
+
+    /** Wraps {@code in} so that every byte read through it is digested. */
+    public InputStream digesting(InputStream in) {
+        return new DigestInputStream(new DigestInputStream(new DigestInputStream(in, sha1), sha256), sha512);
+    }
+
+    /** Digests the whole file: for the cases where nothing else reads it (e.g. a hard link was made instead). */
+    public void digest(Path file) throws IOException {
+        try (InputStream in = digesting(Files.newInputStream(file))) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /** Sidecar extension to hex digest; completes the digests, so call it once all bytes have been read. */
+    public synchronized Map<String, String> sidecars() {
+        if (result == null) {
+            result = new LinkedHashMap<>();
+            result.put("sha1", HexFormat.of().formatHex(sha1.digest()));
+            result.put("sha256", HexFormat.of().formatHex(sha256.digest()));
+            result.put("sha512", HexFormat.of().formatHex(sha512.digest()));
+        }
+        return result;
+    }
+
+    public String sha1() {
+        return sidecars().get("sha1");
+    }
+
+    public String sha256() {
+        return sidecars().get("sha256");
+    }
+
+    public String sha512() {
+        return sidecars().get("sha512");
+    }
+
+    /** Writes {@code <file>.sha1}, {@code .sha256} and {@code .sha512} next to {@code file}. */
+    public void writeSidecars(Path file) throws IOException {
+        for (Map.Entry<String, String> e : sidecars().entrySet()) {
+            Files.writeString(sidecar(file, e.getKey()), e.getValue(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    public static Path sidecar(Path file, String extension) {
+        return file.resolveSibling(file.getFileName() + "." + extension);
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package io.jmix.dependency.cli.export;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Difference between two exports ({@code diff-export}): what the newer one has that the older one does not, so that
+ * only that delta has to be shipped to a site that already holds the older release.
+ * <p>
+ * Each side is read from whatever the export left behind:
+ * <ul>
+ *   <li>an {@link ExportManifest} (or the export directory holding it) - file paths with their SHA-1;</li>
+ *   <li>an {@link ExportRecords} file ({@code --records-file}) - file paths with their SHA-256;</li>
+ *   <li>a text report ({@code --report-file}) - {@code group:artifact:version}s of {@code export}, whose whole
+ *       version directory is compared, or {@code name@version}s of {@code export-npm}.</li>
+ *   <li>a zip written by {@code --archive} - the paths of its artifacts, without hashes: content changed under the
+ *       same name is not detected.</li>
+ * </ul>
+ * A listing entry is a path relative to the export root, or a version directory ending with {@code /}. A file
+ * whose hash differs between the two sides counts as changed - only if both sides hash with the same algorithm: a
+ * manifest holds SHA-1 (and SHA-256 since v2), a records file SHA-256, and hashes that cannot be compared are
+ * dropped rather than reported as changes. When the sides come in different forms, both are reduced to version
+ * directories (npm tarballs stay files) and compared without hashes.
+ */
+public class ExportDiff {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportDiff.class);
+
+    /** Report sections that do not list exported content. */
+    private static final List<String> IGNORED_SECTIONS = List.of("# Missing", "# Checksum mismatches");
+
+    /**
+     * Export-relative entries mapped to their content hash, {@code null} when the input has none.
+     *
+     * @param algorithm the hash algorithm of the entries ({@code "sha1"}, {@code "sha256"}), {@code null} if unhashed
+     */
+    public record Listing(Map<String, String> entries, boolean fileLevel, String algorithm) {
+    }
+
+    /** Entries of the newer export that the older one lacks or has with other content, and the ones it dropped. */
+    public record Result(List<String> added, List<String> changed, List<String> removed) {
+
+        /** What a delta bundle has to contain. */
+        public List<String> delta() {
+            List<String> delta = new ArrayList<>(added);
+            delta.addAll(changed);
+            delta.sort(null);
+            return delta;
+        }
+    }
+
+    /** Reads an export manifest, an export directory, a records file, a text report or an export archive. */
+    public static Listing listing(Path input) {
+        try {
+            Path file = Files.isDirectory(input) ? input.resolve(ExportManifest.FILE_NAME) : input;
+            if (!Files.isRegularFile(file)) {
+                throw new RuntimeException("Nothing to compare in " + input + ": no export manifest, records file, " +
+                        "report or archive");
+            }
+            if (isZip(file)) {
+                return readArchive(file);
+            }
+            String firstLine;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                firstLine = Objects.requireNonNullElse(reader.readLine(), "");
+            }
+            if (file.getFileName().toString().equals(ExportManifest.FILE_NAME)) {
+                // SHA-256 when every entry has one (v2, hashed on export), so it compares with a records file.
+                Collection<ExportManifest.Entry> manifestEntries = ExportManifest.load(file.getParent()).entries();
+                boolean sha256 = manifestEntries.stream().allMatch(entry -> entry.sha256() != null);
+                Map<String, String> entries = new TreeMap<>();
+                for (ExportManifest.Entry entry : manifestEntries) {
+                    entries.put(entry.target(), sha256 ? entry.sha256() : entry.sha1());
+                }
+                return new Listing(entries, true, sha256 ? "sha256" : "sha1");
+            }
+            if (firstLine.startsWith("{")) {
+                return readRecords(file);
+            }
+            return readReport(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read " + input, e);
+        }
+    }
+
+    /** Whether the file starts with a zip signature: a local file header, or the end record of an empty zip. */
+    public static boolean isZip(Path file) throws IOException {
+        byte[] signature;
+        try (InputStream in = Files.newInputStream(file)) {
+            signature = in.readNBytes(4);
+        }
+        return signature.length == 4 && signature[0] == 'P' && signature[1] == 'K'
+                && ((signature[2] == 3 && signature[3] == 4) || (signature[2] == 5 && signature[3] == 6));
+    }
+
+    /** The artifacts of an export archive - what a manifest or records file would list, no sidecars or lockfiles. */
+    private static Listing readArchive(Path file) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            for (ZipEntry entry : zip.stream().toList()) {
+                String name = entry.getName();
+                if (!entry.isDirectory() && (name.endsWith(".jar") || name.endsWith(".pom")
+                        || name.endsWith(".module") || name.endsWith(".tgz"))) {
+                    entries.put(name, null);
+                }
+            }
+        }
+        return new Listing(entries, true, null);
+    }
+
+    private static Listing readRecords(Path file) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                JsonObject record = JsonParser.parseString(line).getAsJsonObject();
+                entries.put(record.get("file").getAsString(), record.get("sha256").getAsString());
+            });
+        }
+        return new Listing(entries, true, "sha256");
+    }
+
+    private static Listing readReport(Path file) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        boolean ignored = false;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.startsWith("#")) {
+                ignored = IGNORED_SECTIONS.stream().anyMatch(line::startsWith);
+            } else if (!line.isEmpty() && !ignored) {
+                entries.put(reportEntry(line), null);
+            }
+        }
+        return new Listing(entries, false, null);
+    }
+
+    /** {@code group:artifact:version} to its version directory, {@code [@scope/]name@version} to its tarball. */
+    private static String reportEntry(String line) {
+        String[] gav = line.split(":");
+        if (gav.length == 3) {
+            return gav[0].replace('.', '/') + "/" + gav[1] + "/" + gav[2] + "/";
+        }
+        int at = line.lastIndexOf('@');
+        if (at <= 0) {
+            throw new RuntimeException("Neither group:artifact:version nor name@version: " + line);
+        }
+        String name = line.substring(0, at);
+        String unscoped = name.substring(name.indexOf('/') + 1);
+        return name + "/" + unscoped + "-" + line.substring(at + 1) + ".tgz";
+    }
+
+    public static Result compare(Listing older, Listing newer) {
+        Map<String, String> oldEntries = older.entries();
+        Map<String, String> newEntries = newer.entries();
+        if (older.fileLevel() != newer.fileLevel()) {
+            oldEntries = coarse(oldEntries);
+            newEntries = coarse(newEntries);
+        } else if (!Objects.equals(older.algorithm(), newer.algorithm())) {
+            // A SHA-1 never equals a SHA-256: compare by name only.
+            oldEntries = unhashed(oldEntries);
+            newEntries = unhashed(newEntries);
+        }
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, String> entry : newEntries.entrySet()) {
+            if (!oldEntries.containsKey(entry.getKey())) {
+                added.add(entry.getKey());
+            } else {
+                String oldHash = oldEntries.get(entry.getKey());
+                if (oldHash != null && entry.getValue() != null && !oldHash.equals(entry.getValue())) {
+                    changed.add(entry.getKey());
+                }
+            }
+        }
+        for (String key : oldEntries.keySet()) {
+            if (!newEntries.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        return new Result(added, changed, removed);
+    }
+
+    private static Map<String, String> unhashed(Map<String, String> entries) {
+        Map<String, String> result = new TreeMap<>();
+        entries.keySet().forEach(key -> result.put(key, null));
+        return result;
+    }
+
+    /** Maven files reduced to their version directories, without hashes. */
+    private static Map<String, String> coarse(Map<String, String> entries) {
+        Map<String, String> result = new TreeMap<>();
+        for (String key : entries.keySet()) {
+            result.put(key.endsWith(".tgz") || key.endsWith("/") ? key : key.substring(0, key.lastIndexOf('/') + 1), null);
+        }
+        return result;
+    }
+
+    /**
+     * Copies the delta from {@code exportDir} (the newer export) into {@code targetDir}, in the same layout, so that
+     * {@code upload} / {@code upload-npm} take it like a full export. Checksum sidecars come along. Returns the number
+     * of files copied.
+     * <p>
+     * A delta entry that {@code exportDir} does not have means the listing and the directory disagree (the wrong
+     * export directory, or files deleted since): nothing is copied and the call fails, unless {@code allowMissing}
+     * is set - then the bundle is built without those entries, which are logged.
+     */
+    public static int materialize(List<String> delta, Path exportDir, Path targetDir, boolean allowMissing) {
+        return materialize(delta, exportDir, allowMissing, (name, file) -> {
+            Path target = targetDir.resolve(name);
+            Files.createDirectories(target.getParent());
+            Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        });
+    }
+
+    /** Like {@link #materialize(List, Path, Path, boolean)}, into a zip archive. */
+    public static int materialize(List<String> delta, Path exportDir, ArchiveWriter archive, boolean allowMissing) {
+        return materialize(delta, exportDir, allowMissing, (name, file) -> archive.add(name, file));
+    }
+
+    private interface Sink {
+        void accept(String name, Path file) throws IOException;
+    }
+
+    private static int materialize(List<String> delta, Path exportDir, boolean allowMissing, Sink sink) {
+        // Every entry is looked up before the first copy, so a failing call leaves no partial bundle behind.
+        List<Path> files = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        try {
+            for (String entry : delta) {
+                int found = files.size();
+                Path path = exportDir.resolve(entry);
+                if (entry.endsWith("/")) {
+                    if (Files.isDirectory(path)) {
+                        try (Stream<Path> children = Files.list(path)) {
+                            children.filter(Files::isRegularFile).sorted().forEach(files::add);
+                        }
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    files.add(path);
+                    for (String extension : Checksums.SIDECAR_EXTENSIONS) {
+                        Path sidecar = Checksums.sidecar(path, extension);
+                        if (Files.isRegularFile(sidecar)) {
+                            files.add(sidecar);
+                        }
+                    }
+                }
+                if (files.size() == found) {
+                    missing.add(entry);
+                }
+            }
+            if (!missing.isEmpty()) {
+                if (!allowMissing) {
+                    throw new RuntimeException(missing.size() + " delta entr(ies) not found in " + exportDir +
+                            " (is it the export directory of the newer release?): " + missing);
+                }
+                log.warn("{} delta entr(ies) not found in {}, left out of the bundle: {}", missing.size(), exportDir,
+                        missing);
+            }
+            for (Path file : files) {
+                sink.accept(exportDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"), file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while copying the delta out of " + exportDir, e);
+        }
+        return files.size();
+    }
+}
@@ -0,0 +1,143 @@
+package io.jmix.dependency.cli.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Record of what an {@code export} put into its target directory, kept there as {@value #FILE_NAME}.
+ * <p>
+ * One tab-separated line per exported file: its path relative to the target directory, the size and mtime the
+ * source file in the Gradle cache had when it was exported, its SHA-1 (the name of the cache's hash directory,
+ * so it costs nothing to record), the source path and - once the file has been hashed for sidecars, verification or
+ * a records file - its SHA-256. The next {@code --incremental} export compares the cache against these lines instead
+ * of probing the target directory file by file, and reuses the SHA-256 of an unchanged file instead of hashing it
+ * again.
+ * <p>
+ * A missing or unreadable manifest is treated as empty - the export then simply behaves like a full one.
+ */
+public class ExportManifest {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportManifest.class);
+
+    public static final String FILE_NAME = ".export-manifest.tsv";
+
+    private static final String HEADER = "# jmix-dependency-tool export manifest v2";
+
+    /** Manifests written before the SHA-256 column; their entries load with an unknown SHA-256. */
+    private static final String HEADER_V1 = "# jmix-dependency-tool export manifest v1";
+
+    /**
+     * @param target       path relative to the export directory, always {@code /}-separated
+     * @param size         size of the source file in bytes
+     * @param lastModified mtime of the source file, epoch millis
+     * @param sha1         SHA-1 of the content as named by the Gradle cache
+     * @param source       absolute path of the source file in the Gradle cache
+     * @param sha256       SHA-256 of the content, {@code null} if the file was exported without hashing
+     */
+    public record Entry(String target, long size, long lastModified, String sha1, String source, String sha256) {
+
+        public Entry(String target, long size, long lastModified, String sha1, String source) {
+            this(target, size, lastModified, sha1, source, null);
+        }
+
+        public Entry withSha256(String sha256) {
+            return new Entry(target, size, lastModified, sha1, source, sha256);
+        }
+
+        /** Whether {@code other} describes the same source file, unchanged. */
+        public boolean sameSourceAs(Entry other) {
+            return source.equals(other.source) && size == other.size && lastModified == other.lastModified;
+        }
+    }
+
+    // Sorted for a stable file, concurrent because export workers record their files in parallel.
+    private final Map<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+    public static ExportManifest load(Path targetDir) {
+        ExportManifest manifest = new ExportManifest();
+        Path file = targetDir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line) && !HEADER_V1.equals(line)) {
+                log.warn("Ignoring export manifest {} of an unknown format", file);
+                return manifest;
+            }
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 5 && fields.length != 6) {
+                    continue;
+                }
+                try {
+                    String sha256 = fields.length == 6 && !fields[5].isEmpty() ? fields[5] : null;
+                    manifest.put(new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            fields[3], fields[4], sha256));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not read export manifest {}, starting from an empty one: {}", file, e.getMessage());
+            return new ExportManifest();
+        }
+        return manifest;
+    }
+
+    public Entry get(String target) {
+        return entries.get(target);
+    }
+
+    public void put(Entry entry) {
+        entries.put(entry.target(), entry);
+    }
+
+    public void remove(String target) {
+        entries.remove(target);
+    }
+
+    public Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Writes the manifest into {@code targetDir}, replacing the previous one atomically. */
+    public void write(Path targetDir) {
+        Path file = targetDir.resolve(FILE_NAME);
+        Path partFile = targetDir.resolve(FILE_NAME + ".part");
+        try {
+            Files.createDirectories(targetDir);
+            try (BufferedWriter writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Entry e : entries.values()) {
+                    writer.write(e.target() + "\t" + e.size() + "\t" + e.lastModified() + "\t" + e.sha1() + "\t" + e.source()
+                            + "\t" + (e.sha256() == null ? "" : e.sha256()));
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while writing the export manifest " + file, e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.jmix.dependency.cli.export;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Machine-readable export report ({@code --records-file}): one JSON object per exported file, appended as the
+ * export goes (JSON Lines), so memory stays flat however large the export is. Fields:
+ * <pre>
+ * {"coordinates":"io.jmix.core:jmix-core:2.8.0","file":"io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0-sources.jar",
+ *  "classifier":"sources","size":123456,"sha256":"...","source":"gradle-cache"}
+ * </pre>
+ * {@code coordinates} is {@code group:artifact:version} for Maven artifacts and {@code name@version} for npm
+ * tarballs; {@code file} is relative to the export root (or the archive); {@code classifier} is absent when the
+ * file has none. {@code source} is {@code gradle-cache} for Maven artifacts and {@code resolved} or
+ * {@code variant} for npm tarballs (see {@code NpmDownloadPlan}). Lines are in completion order, not sorted -
+ * comparing two releases is a join on {@code file}, which needs no re-hashing of the exports.
+ */
+public class ExportRecords implements AutoCloseable {
+
+    private static final Gson GSON = new Gson();
+
+    private final Path file;
+    private final Writer writer;
+
+    public ExportRecords(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.file.getParent());
+            this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create the records file " + file, e);
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public synchronized void write(String coordinates, String file, String classifier, long size, String sha256,
+                                   String source) {
+        JsonObject record = new JsonObject();
+        record.addProperty("coordinates", coordinates);
+        record.addProperty("file", file);
+        if (classifier != null) {
+            record.addProperty("classifier", classifier);
+        }
+        record.addProperty("size", size);
+        record.addProperty("sha256", sha256);
+        record.addProperty("source", source);
+        try {
+            writer.write(GSON.toJson(record));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new RuntimeException("Error while writing the records file " + this.file, e);
+        }
+    }
+
+    /**
+     * The classifier of a Maven artifact file: {@code sources} for {@code guava-33.0.0-jre-sources.jar} of
+     * {@code guava:33.0.0-jre}, {@code null} for the main jar, the pom and the Gradle module file.
+     */
+    public static String classifier(String artifactId, String version, String fileName) {
+        String prefix = artifactId + "-" + version + "-";
+        int dot = fileName.lastIndexOf('.');
+        if (!fileName.startsWith(prefix) || dot <= prefix.length()) {
+            return null;
+        }
+        return fileName.substring(prefix.length(), dot);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error while writing the records file " + file, e);
+        }
+    }
+}
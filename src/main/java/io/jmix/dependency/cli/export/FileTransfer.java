@@ -0,0 +1,243 @@
+package io.jmix.dependency.cli.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Puts a cache file into the export directory using the requested {@link LinkMode}, falling back to a plain copy.
+ * <p>
+ * A hard link or a copy-on-write clone turns the export of a multi-gigabyte cache into a metadata-only
+ * operation when cache and export share a filesystem. A strategy that turns out to be unsupported (different
+ * filesystems, no reflink support) is not tried again for the remaining files; a hard link that fails for a reason
+ * of its own file only falls back for that file. Cache files are never modified in place by Gradle,
+ * so sharing their inode with the export is safe; the export must not be edited in place either.
+ * <p>
+ * The JDK cannot clone, so clones are made by GNU {@code cp}. The first one is a single-file probe; once it has
+ * worked, callers that pass a {@link Batch} get their clones queued and made with one {@code cp} per target
+ * directory rather than one process per file.
+ */
+public class FileTransfer {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTransfer.class);
+
+    private final Map<LinkMode, AtomicInteger> counts = new EnumMap<>(LinkMode.class);
+    private volatile boolean hardLinkAvailable;
+    private volatile boolean reflinkAvailable;
+    private volatile boolean reflinkProbed;
+
+    public FileTransfer(LinkMode mode) {
+        this.hardLinkAvailable = mode == LinkMode.AUTO || mode == LinkMode.HARDLINK;
+        this.reflinkAvailable = mode == LinkMode.AUTO || mode == LinkMode.REFLINK;
+        for (LinkMode strategy : LinkMode.values()) {
+            counts.put(strategy, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Materializes {@code source} as {@code target}, replacing an existing target, and returns the strategy used.
+     */
+    public LinkMode transfer(Path source, Path target) throws IOException {
+        return transfer(source, target, null);
+    }
+
+    /**
+     * Like {@link #transfer(Path, Path)}, also feeding the content to {@code checksums} (when not {@code null}): a
+     * copy digests the bytes as they stream through, a link - which reads nothing - digests the file afterwards.
+     */
+    public LinkMode transfer(Path source, Path target, Checksums checksums) throws IOException {
+        return transfer(source, target, checksums, null);
+    }
+
+    /**
+     * Like {@link #transfer(Path, Path, Checksums)}, but a clone may be queued in {@code batch} instead of being made
+     * right away: {@code target} then only exists after {@link Batch#flush()}. {@code checksums} are complete on
+     * return either way.
+     */
+    public LinkMode transfer(Path source, Path target, Checksums checksums, Batch batch) throws IOException {
+        LinkMode strategy = materialize(source, target, checksums, batch);
+        if (checksums != null && strategy != LinkMode.COPY) {
+            // Same bytes as the target, which a queued clone has not created yet.
+            checksums.digest(source);
+        }
+        return strategy;
+    }
+
+    /** Starts a batch of clones for one unit of work, e.g. the files of one module version. */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    private LinkMode materialize(Path source, Path target, Checksums checksums, Batch batch) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (hardLinkAvailable) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                return counted(LinkMode.HARDLINK);
+            } catch (IOException | UnsupportedOperationException e) {
+                if (!linksUnsupported(e)) {
+                    // E.g. a file raced in or the link count of this one file is exhausted: this file only.
+                    log.debug("Hard link {} failed ({}), trying the next strategy for this file", target, e.toString());
+                } else {
+                    hardLinkAvailable = false;
+                    log.info("Hard links are not possible ({}), falling back to {}", e.toString(),
+                            reflinkAvailable ? "copy-on-write clones" : "copying");
+                }
+            }
+        }
+        if (reflinkAvailable) {
+            if (batch != null && reflinkProbed && source.getFileName().equals(target.getFileName())) {
+                // Never clone into an existing target: it may be a hard link sharing its inode with the cache.
+                Files.deleteIfExists(target);
+                batch.add(source, target);
+                return counted(LinkMode.REFLINK);
+            }
+            if (cloneOne(source, target)) {
+                return counted(LinkMode.REFLINK);
+            }
+        }
+        if (checksums != null) {
+            try (InputStream in = checksums.digesting(Files.newInputStream(source))) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } else {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return counted(LinkMode.COPY);
+    }
+
+    /**
+     * Whether a failed link means hard links do not work between these directories at all - another filesystem,
+     * a filesystem without hard links, or a kernel policy such as {@code protected_hardlinks} - rather than
+     * something about the one file.
+     */
+    private static boolean linksUnsupported(Exception e) {
+        if (e instanceof UnsupportedOperationException) {
+            return true;
+        }
+        if (!(e instanceof FileSystemException failure) || e instanceof NoSuchFileException
+                || e instanceof FileAlreadyExistsException) {
+            return false;
+        }
+        String reason = String.valueOf(failure.getReason()).toLowerCase(Locale.ROOT);
+        return reason.contains("cross-device") || reason.contains("not supported") || reason.contains("not permitted")
+                || reason.contains("different disk");
+    }
+
+    /** Clones one file with a {@code cp} of its own; the first failure turns clones off for good. */
+    private boolean cloneOne(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        if (cloneInto(List.of(source.toAbsolutePath().toString(), target.toAbsolutePath().toString()))) {
+            reflinkProbed = true;
+            return true;
+        }
+        Files.deleteIfExists(target); // cp may leave an empty file behind
+        reflinkAvailable = false;
+        log.info("Copy-on-write clones are not supported here, falling back to copying");
+        return false;
+    }
+
+    private static boolean cloneInto(List<String> cpArguments) throws IOException {
+        // The JDK has no clone API; GNU cp issues the FICLONE ioctl (and fails instead of copying with "always").
+        List<String> command = new ArrayList<>(List.of("cp", "--reflink=always", "-f"));
+        command.addAll(cpArguments);
+        Process process;
+        try {
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            return false; // no cp on this system
+        }
+        try {
+            return process.waitFor() == 0;
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while cloning " + cpArguments.get(0), e);
+        }
+    }
+
+    /**
+     * Clones queued by {@link #transfer(Path, Path, Checksums, Batch)}, made by {@link #flush()} with one {@code cp}
+     * per target directory. Not thread-safe: one batch belongs to one worker.
+     */
+    public class Batch {
+
+        private final Map<Path, Map<Path, Path>> byDirectory = new LinkedHashMap<>();
+
+        private Batch() {
+        }
+
+        private void add(Path source, Path target) {
+            byDirectory.computeIfAbsent(target.getParent(), dir -> new LinkedHashMap<>()).put(target, source);
+        }
+
+        /** Whether {@code target} is queued, i.e. will exist after {@link #flush()}. */
+        public boolean isPending(Path target) {
+            Map<Path, Path> targets = byDirectory.get(target.getParent());
+            return targets != null && targets.containsKey(target);
+        }
+
+        /** Every queued target, for cleaning up after a failed {@link #flush()}. */
+        public List<Path> targets() {
+            List<Path> targets = new ArrayList<>();
+            byDirectory.values().forEach(queued -> targets.addAll(queued.keySet()));
+            return targets;
+        }
+
+        /**
+         * Makes the queued clones. A directory whose {@code cp} fails - reflinks worked for the probe, so this is
+         * the odd file - is copied instead.
+         */
+        public void flush() throws IOException {
+            for (Map.Entry<Path, Map<Path, Path>> directory : byDirectory.entrySet()) {
+                List<String> arguments = new ArrayList<>(List.of("-t", directory.getKey().toAbsolutePath().toString()));
+                directory.getValue().values().forEach(source -> arguments.add(source.toAbsolutePath().toString()));
+                if (cloneInto(arguments)) {
+                    continue;
+                }
+                log.warn("Cloning into {} failed, copying its {} file(s) instead", directory.getKey(),
+                        directory.getValue().size());
+                for (Map.Entry<Path, Path> file : directory.getValue().entrySet()) {
+                    Files.copy(file.getValue(), file.getKey(), StandardCopyOption.REPLACE_EXISTING);
+                    counts.get(LinkMode.REFLINK).decrementAndGet();
+                    counted(LinkMode.COPY);
+                }
+            }
+            byDirectory.clear();
+        }
+    }
+
+    private LinkMode counted(LinkMode strategy) {
+        counts.get(strategy).incrementAndGet();
+        return strategy;
+    }
+
+    /** Files transferred with each strategy, e.g. {@code "120 hard link(s), 0 clone(s), 3 copy(ies)"}. */
+    public String summary() {
+        return counts.get(LinkMode.HARDLINK).get() + " hard link(s), " + counts.get(LinkMode.REFLINK).get() +
+                " clone(s), " + counts.get(LinkMode.COPY).get() + " copy(ies)";
+    }
+
+    public int count(LinkMode strategy) {
+        return counts.get(strategy).get();
+    }
+}
@@ -0,0 +1,490 @@
+package io.jmix.dependency.cli.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copies the {@code .jar} / {@code .pom} / {@code .module} files of a Gradle cache
+ * ({@code caches/modules-2/files-2.1/<group>/<artifact>/<version>/<sha1>/<file>}) into a Maven repository layout
+ * ({@code <group path>/<artifact>/<version>/<file>}) and records them in the target's {@link ExportManifest}.
+ * <p>
+ * A full export copies every file the target does not have yet. An incremental export trusts the manifest
+ * instead: a file whose source is listed with the same size and mtime is skipped without touching the target
+ * directory, a listed source that changed is copied again, and only files missing from the manifest fall back to
+ * the full-export check. Run a full export to repair a target directory that was modified by hand.
+ * <p>
+ * The cache is walked by a fork-join traversal (group and artifact directories in parallel) that hands each
+ * module version to a pool of copy workers; the number of versions waiting for a worker is bounded, so the walk
+ * never runs far ahead of the copies. The files of one version are exported by one worker in a fixed order,
+ * which keeps the result deterministic when a file name occurs under two hash directories.
+ * <p>
+ * With {@link #archiveTo} the files are written into a zip archive instead of the target directory; there is
+ * nothing to compare against then, so the export is always a full one and no manifest is kept. With
+ * {@link #storeIn} every file is a hard link into a content-addressed {@link BlobStore} shared by many exports.
+ * <p>
+ * {@link #writeChecksums} adds {@code .sha1} / {@code .sha256} / {@code .sha512} sidecars to every exported file,
+ * hashed in the read the export does anyway (see {@link Checksums}). {@link #verify} uses the same hashing to check
+ * every copied file against the SHA-1 the Gradle cache names its directory after, which catches bit rot and
+ * truncated downloads in long-lived Gradle homes.
+ * <p>
+ * {@link #only} restricts the export to a set of module versions (typically a {@link ResolutionManifest} expanded by
+ * {@link PomClosure}); the walk then does not even list the groups and modules outside of it. {@link #recordTo}
+ * streams a JSON Lines record of every file in the export as it goes (see {@link ExportRecords}).
+ */
+public class GradleCacheExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(GradleCacheExporter.class);
+
+    public static final int DEFAULT_THREADS = 4;
+
+    /** Module versions that may wait for a free copy worker, per worker. */
+    private static final int QUEUED_VERSIONS_PER_THREAD = 16;
+
+    /** Depth of a version directory below the cache root: {@code <group>/<artifact>/<version>}. */
+    private static final int VERSION_DEPTH = 3;
+
+    /** Export totals. Updated concurrently by the copy workers. */
+    public static class Report {
+        /** {@code group:artifact:version} of every exported module version, sorted. */
+        public final NavigableSet<String> components = new ConcurrentSkipListSet<>();
+        public final AtomicInteger copied = new AtomicInteger();
+        public final AtomicInteger updated = new AtomicInteger();
+        public final AtomicInteger unchanged = new AtomicInteger();
+        /** Exported files whose content does not match their cache directory's SHA-1 ({@link #verify}), sorted. */
+        public final NavigableSet<String> checksumMismatches = new ConcurrentSkipListSet<>();
+        /** How the copied and updated files were materialized ({@link FileTransfer} or {@link BlobStore} summary). */
+        public String transfers;
+    }
+
+    private final Path cacheDir;
+    private final Path targetDir;
+    private final boolean incremental;
+    private final FileTransfer transfer;
+    private final int threads;
+    private ArchiveWriter archive;
+    private BlobStore store;
+    private boolean writeChecksums;
+    private boolean verify;
+    private Set<String> included;
+    private ExportRecords records;
+
+    public GradleCacheExporter(Path cacheDir, Path targetDir, boolean incremental) {
+        this(cacheDir, targetDir, incremental, LinkMode.COPY, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param cacheDir    the {@code caches/modules-2/files-2.1} directory of a Gradle user home
+     * @param incremental whether to trust the manifest of a previous export (see the class description)
+     * @param linkMode    how files are put into the target directory
+     * @param threads     number of copy workers, also the parallelism of the directory walk
+     */
+    public GradleCacheExporter(Path cacheDir, Path targetDir, boolean incremental, LinkMode linkMode, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of export threads must be positive: " + threads);
+        }
+        this.cacheDir = cacheDir;
+        this.targetDir = targetDir;
+        this.incremental = incremental;
+        this.transfer = new FileTransfer(linkMode);
+        this.threads = threads;
+    }
+
+    /** Writes the export into {@code archive} instead of the target directory. */
+    public GradleCacheExporter archiveTo(ArchiveWriter archive) {
+        this.archive = archive;
+        return this;
+    }
+
+    /** Links every exported file to its blob in {@code store} instead of applying the link mode. */
+    public GradleCacheExporter storeIn(BlobStore store) {
+        this.store = store;
+        return this;
+    }
+
+    /** Writes checksum sidecars next to (or into the archive along with) every exported file. */
+    public GradleCacheExporter writeChecksums(boolean writeChecksums) {
+        this.writeChecksums = writeChecksums;
+        return this;
+    }
+
+    /** Checks the SHA-1 of every copied file against the name of its hash directory in the Gradle cache. */
+    public GradleCacheExporter verify(boolean verify) {
+        this.verify = verify;
+        return this;
+    }
+
+    /**
+     * Exports only the given module versions ({@code group:module:version}) instead of the whole cache. Versions
+     * the cache does not have are ignored.
+     */
+    public GradleCacheExporter only(Collection<String> components) {
+        // The walk checks every directory level: "group", "group:module", "group:module:version".
+        Set<String> keys = new HashSet<>();
+        for (String gav : components) {
+            String[] parts = gav.split(":");
+            if (parts.length == 3) {
+                keys.add(parts[0]);
+                keys.add(parts[0] + ":" + parts[1]);
+                keys.add(gav);
+            }
+        }
+        this.included = keys;
+        return this;
+    }
+
+    /** Writes a record of every file in the export (copied or already there) to {@code records}. */
+    public GradleCacheExporter recordTo(ExportRecords records) {
+        this.records = records;
+        return this;
+    }
+
+    public Report export() {
+        ExportRun run = new ExportRun(archive == null ? ExportManifest.load(targetDir) : new ExportManifest());
+        if (incremental && archive == null) {
+            log.info("Incremental export against a manifest of {} file(s)", run.manifest.size());
+        }
+        ForkJoinPool walkPool = new ForkJoinPool(threads);
+        try {
+            walkPool.invoke(new DirectoryTask(run, cacheDir, 0, null));
+        } finally {
+            walkPool.shutdown();
+            run.awaitCopies();
+            if (archive == null) {
+                // Also on failure: what was copied so far is recorded and need not be copied again.
+                run.manifest.write(targetDir);
+            }
+        }
+        if (run.failure.get() != null) {
+            throw run.failure.get();
+        }
+        run.report.transfers = store != null ? store.summary() : transfer.summary();
+        return run.report;
+    }
+
+    private static boolean isExported(String fileName) {
+        return fileName.endsWith(".jar") || fileName.endsWith(".pom") || fileName.endsWith(".module");
+    }
+
+    private static List<Path> list(Path dir) {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            stream.forEach(children::add);
+        } catch (IOException e) {
+            throw new RuntimeException("Error on copying files from gradle caches", e);
+        }
+        children.sort(null);
+        return children;
+    }
+
+    /** State of one {@link #export()} call, shared by the walk tasks and the copy workers. */
+    private class ExportRun {
+        final ExportManifest manifest;
+        final Report report = new Report();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Semaphore queued = new Semaphore(threads * QUEUED_VERSIONS_PER_THREAD);
+        final ExecutorService copyPool;
+
+        ExportRun(ExportManifest manifest) {
+            this.manifest = manifest;
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.copyPool = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "export-copy-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /** Queues the version directory for a copy worker, blocking while too many are waiting. */
+        void submitVersion(Path versionDir) {
+            try {
+                queued.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while walking the gradle cache", e);
+            }
+            copyPool.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        exportVersion(versionDir);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    queued.release();
+                }
+            });
+        }
+
+        void awaitCopies() {
+            copyPool.shutdown();
+            try {
+                while (!copyPool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Exporting... {} file(s) copied, {} updated, {} unchanged so far",
+                            report.copied.get(), report.updated.get(), report.unchanged.get());
+                }
+            } catch (InterruptedException e) {
+                copyPool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the export to finish", e);
+            }
+        }
+
+        private void exportVersion(Path versionDir) {
+            // The clones of one version directory are made together: one cp for its target directory.
+            FileTransfer.Batch batch = transfer.batch();
+            try {
+                exportFiles(versionDir, batch);
+            } finally {
+                try {
+                    batch.flush();
+                } catch (IOException e) {
+                    // Not in the target, so not in the manifest either: the next export must copy them again.
+                    batch.targets().forEach(target -> manifest.remove(
+                            targetDir.relativize(target).toString().replace(File.separatorChar, '/')));
+                    throw new RuntimeException("Error while cloning the files of " + versionDir, e);
+                }
+            }
+        }
+
+        private void exportFiles(Path versionDir, FileTransfer.Batch batch) {
+            for (Path hashDir : list(versionDir)) {
+                if (!Files.isDirectory(hashDir)) {
+                    continue;
+                }
+                for (Path file : list(hashDir)) {
+                    if (!isExported(file.getFileName().toString())) {
+                        continue;
+                    }
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                        if (attrs.isRegularFile()) {
+                            exportFile(file, attrs, batch);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException("Error while copying a file " + file.getFileName(), e);
+                    }
+                }
+            }
+        }
+
+        private void exportFile(Path file, BasicFileAttributes attrs, FileTransfer.Batch batch) throws IOException {
+            Path hashDir = file.getParent();
+            Path versionDir = hashDir.getParent();
+            Path artifactDir = versionDir.getParent();
+            Path moduleDir = artifactDir.getParent();
+
+            // One GAV per module version, regardless of which files it ships: pom-only modules (e.g. jmix-bom)
+            // must not be missed just because they have no .jar.
+            String gav = moduleDir.getFileName() + ":" + artifactDir.getFileName() + ":" + versionDir.getFileName();
+            report.components.add(gav);
+
+            String target = moduleDir.getFileName().toString().replace(".", "/") + "/" +
+                    artifactDir.getFileName() + "/" + versionDir.getFileName() + "/" + file.getFileName();
+            if (archive != null) {
+                Checksums checksums = hashing() ? new Checksums() : null;
+                if (archive.add(target, file, checksums)) {
+                    checkSha1(target, hashDir, checksums);
+                    record(gav, target, attrs.size(), checksums);
+                    if (writeChecksums) {
+                        for (Map.Entry<String, String> sidecar : checksums.sidecars().entrySet()) {
+                            archive.add(target + "." + sidecar.getKey(), sidecar.getValue().getBytes(StandardCharsets.US_ASCII));
+                        }
+                    }
+                    report.copied.incrementAndGet();
+                } else {
+                    report.unchanged.incrementAndGet();
+                }
+                return;
+            }
+            ExportManifest.Entry current = new ExportManifest.Entry(target, attrs.size(),
+                    attrs.lastModifiedTime().toMillis(), hashDir.getFileName().toString(), file.toAbsolutePath().toString());
+            ExportManifest.Entry previous = manifest.get(target);
+            Path outputFile = targetDir.resolve(target);
+            if (incremental && previous != null) {
+                if (previous.sameSourceAs(current) || !previous.source().equals(current.source())) {
+                    // Unchanged, or the same file name under another hash directory: the first one exported wins,
+                    // as in a full export.
+                    if (previous.source().equals(current.source())) {
+                        recordExisting(gav, target, outputFile, previous);
+                    }
+                    report.unchanged.incrementAndGet();
+                } else {
+                    log.debug("Source changed, copying again: {}", file);
+                    Checksums checksums = materialize(file, outputFile, batch);
+                    checkSha1(target, hashDir, checksums);
+                    record(gav, target, attrs.size(), checksums);
+                    manifest.put(withSha256(current, checksums));
+                    report.updated.incrementAndGet();
+                }
+                return;
+            }
+            if (Files.exists(outputFile) || batch.isPending(outputFile)) {
+                if (previous == null) {
+                    manifest.put(current);
+                    previous = current;
+                }
+                if (writeChecksums && !Files.exists(Checksums.sidecar(outputFile, "sha1"))) {
+                    // Exported before sidecars were requested: hash the exported copy once.
+                    Checksums checksums = new Checksums();
+                    checksums.digest(outputFile);
+                    checksums.writeSidecars(outputFile);
+                }
+                if (previous.source().equals(current.source())) {
+                    // A SHA-256 recorded for an older version of the source does not describe this file.
+                    recordExisting(gav, target, outputFile, previous.sameSourceAs(current) ? previous : null);
+                }
+                report.unchanged.incrementAndGet();
+            } else {
+                log.debug("Copying file: {}", file.getFileName());
+                Checksums checksums = materialize(file, outputFile, batch);
+                checkSha1(target, hashDir, checksums);
+                record(gav, target, attrs.size(), checksums);
+                manifest.put(withSha256(current, checksums));
+                report.copied.incrementAndGet();
+            }
+        }
+
+        private void record(String gav, String target, long size, Checksums checksums) {
+            if (records != null) {
+                records.write(gav, target, classifier(gav, target), size, checksums.sha256(), "gradle-cache");
+            }
+        }
+
+        /**
+         * Records a file the target already has. The SHA-256 comes from its manifest entry if that has one, else from
+         * the SHA-256 sidecar, else the file is hashed - once: the result goes into the manifest entry, so the next
+         * export of the unchanged file reuses it.
+         *
+         * @param entry the manifest entry describing {@code outputFile}, {@code null} if there is none
+         */
+        private void recordExisting(String gav, String target, Path outputFile, ExportManifest.Entry entry)
+                throws IOException {
+            if (records == null) {
+                return;
+            }
+            String sha256 = entry != null ? entry.sha256() : null;
+            if (sha256 == null) {
+                Path sidecar = Checksums.sidecar(outputFile, "sha256");
+                if (Files.exists(sidecar)) {
+                    sha256 = Files.readString(sidecar, StandardCharsets.US_ASCII).trim();
+                } else {
+                    Checksums checksums = new Checksums();
+                    checksums.digest(outputFile);
+                    sha256 = checksums.sha256();
+                }
+                if (entry != null) {
+                    manifest.put(entry.withSha256(sha256));
+                }
+            }
+            records.write(gav, target, classifier(gav, target), Files.size(outputFile), sha256, "gradle-cache");
+        }
+
+        private void checkSha1(String target, Path hashDir, Checksums checksums) {
+            if (!verify) {
+                return;
+            }
+            // Gradle writes the hash as a number: without leading zeros.
+            String expected = stripLeadingZeros(hashDir.getFileName().toString());
+            String actual = stripLeadingZeros(checksums.sha1());
+            if (!expected.equalsIgnoreCase(actual)) {
+                log.warn("Checksum mismatch for {}: the cache expects SHA-1 {}, the content has {}", target, expected, actual);
+                report.checksumMismatches.add(target);
+            }
+        }
+    }
+
+    private static ExportManifest.Entry withSha256(ExportManifest.Entry entry, Checksums checksums) {
+        return checksums == null ? entry : entry.withSha256(checksums.sha256());
+    }
+
+    private static String classifier(String gav, String target) {
+        String[] parts = gav.split(":");
+        return ExportRecords.classifier(parts[1], parts[2], target.substring(target.lastIndexOf('/') + 1));
+    }
+
+    /** Whether exported files are hashed on the way: for sidecars, verification or the records file. */
+    private boolean hashing() {
+        return writeChecksums || verify || records != null;
+    }
+
+    private static String stripLeadingZeros(String hex) {
+        int i = 0;
+        while (i < hex.length() - 1 && hex.charAt(i) == '0') {
+            i++;
+        }
+        return hex.substring(i);
+    }
+
+    /** Puts the file into the target directory; returns its checksums when anything needs them ({@link #hashing()}). */
+    private Checksums materialize(Path file, Path outputFile, FileTransfer.Batch batch) throws IOException {
+        Checksums checksums = hashing() ? new Checksums() : null;
+        if (store != null) {
+            store.materialize(file, outputFile, checksums);
+        } else {
+            transfer.transfer(file, outputFile, checksums, batch);
+        }
+        if (writeChecksums) {
+            checksums.writeSidecars(outputFile);
+        }
+        return checksums;
+    }
+
+    /** Lists one directory of the cache and forks a task per subdirectory, down to the version directories. */
+    private class DirectoryTask extends RecursiveAction {
+        private final ExportRun run;
+        private final Path dir;
+        private final int depth;
+        private final String key;
+
+        /** @param key the coordinates {@code dir} stands for: "group", "group:module", ... ({@code null} for the root) */
+        DirectoryTask(ExportRun run, Path dir, int depth, String key) {
+            this.run = run;
+            this.dir = dir;
+            this.depth = depth;
+            this.key = key;
+        }
+
+        @Override
+        protected void compute() {
+            if (run.failure.get() != null) {
+                return;
+            }
+            if (depth == VERSION_DEPTH) {
+                run.submitVersion(dir);
+                return;
+            }
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (Path child : list(dir)) {
+                String childKey = key == null ? child.getFileName().toString() : key + ":" + child.getFileName();
+                if ((included == null || included.contains(childKey)) && Files.isDirectory(child)) {
+                    subtasks.add(new DirectoryTask(run, child, depth + 1, childKey));
+                }
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.jmix.dependency.cli.export;
+
+/**
+ * How {@code export} materializes a cache file in the target directory.
+ * {@link #AUTO} is a preference order, the others are both requested modes and the strategy actually used.
+ */
+public enum LinkMode {
+    /**
+     * Hard link, else copy-on-write clone, else copy - the cheapest strategy the filesystems allow. A clone is tried
+     * whenever the hard link fails. Across filesystems it fails as well, after a single {@code cp} probe, but it
+     * succeeds where a hard link is refused within one filesystem: between Btrfs subvolumes, or under
+     * {@code protected_hardlinks} for a cache owned by another user.
+     */
+    AUTO,
+    /** Hard link to the cache file (same filesystem only); falls back to a copy. */
+    HARDLINK,
+    /** Copy-on-write clone ({@code cp --reflink=always}, e.g. on Btrfs, XFS, APFS via GNU cp); falls back to a copy. */
+    REFLINK,
+    /** Plain byte copy. */
+    COPY
+}
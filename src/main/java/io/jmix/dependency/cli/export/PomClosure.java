@@ -0,0 +1,211 @@
+package io.jmix.dependency.cli.export;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Adds to a set of resolved module versions the poms Maven needs to read them but which a resolution graph does
+ * not list: {@code <parent>} poms and BOMs imported through {@code <dependencyManagement>} ({@code scope import}),
+ * transitively. Gradle downloaded them into the cache while resolving, and a build against the exported repository
+ * fetches them again - so a filtered export must include them.
+ * <p>
+ * Poms are read from the Gradle cache ({@code files-2.1}). Versions given as {@code ${property}} are interpolated
+ * from the pom's own and its parents' {@code <properties>}; a reference that stays unresolved is skipped.
+ */
+public class PomClosure {
+
+    private static final Logger log = LoggerFactory.getLogger(PomClosure.class);
+
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+
+    private record Pom(String parent, Map<String, String> properties, List<String> imports) {
+    }
+
+    private final Path cacheDir;
+    private final Map<String, Pom> poms = new HashMap<>();
+    private final Map<String, Map<String, String>> properties = new HashMap<>();
+
+    private PomClosure(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /** {@code components} ({@code group:module:version}) plus every parent and imported BOM pom they reference. */
+    public static Set<String> expand(Path cacheDir, Collection<String> components) {
+        PomClosure closure = new PomClosure(cacheDir);
+        Set<String> result = new TreeSet<>(components);
+        Deque<String> pending = new ArrayDeque<>(components);
+        while (!pending.isEmpty()) {
+            String gav = pending.poll();
+            for (String reference : closure.references(gav)) {
+                if (result.add(reference)) {
+                    pending.add(reference);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<String> references(String gav) {
+        Pom pom = pom(gav);
+        if (pom == null) {
+            return List.of();
+        }
+        List<String> references = new ArrayList<>();
+        if (pom.parent() != null) {
+            references.add(pom.parent());
+        }
+        Map<String, String> props = properties(gav);
+        for (String imported : pom.imports()) {
+            String interpolated = interpolate(imported, props);
+            if (interpolated.contains("${")) {
+                log.debug("Skipping BOM import {} of {}: unresolved property", imported, gav);
+            } else {
+                references.add(interpolated);
+            }
+        }
+        return references;
+    }
+
+    /** The effective properties of {@code gav}: its parents', overridden by its own, plus the project.* ones. */
+    private Map<String, String> properties(String gav) {
+        Map<String, String> cached = properties.get(gav);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, String> props = new HashMap<>();
+        Pom pom = pom(gav);
+        if (pom != null) {
+            if (pom.parent() != null) {
+                props.putAll(properties(pom.parent()));
+                props.put("project.parent.version", pom.parent().substring(pom.parent().lastIndexOf(':') + 1));
+            }
+            props.putAll(pom.properties());
+        }
+        String[] parts = gav.split(":");
+        props.put("project.groupId", parts[0]);
+        props.put("project.artifactId", parts[1]);
+        props.put("project.version", parts[2]);
+        properties.put(gav, props);
+        return props;
+    }
+
+    private static String interpolate(String value, Map<String, String> props) {
+        // Properties may refer to other properties; a few rounds cover real-world poms without risking a cycle.
+        for (int round = 0; round < 10 && value.contains("${"); round++) {
+            Matcher matcher = PROPERTY.matcher(value);
+            StringBuilder sb = new StringBuilder();
+            while (matcher.find()) {
+                String replacement = props.get(matcher.group(1));
+                matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement != null ? replacement : matcher.group()));
+            }
+            matcher.appendTail(sb);
+            if (sb.toString().equals(value)) {
+                break;
+            }
+            value = sb.toString();
+        }
+        return value;
+    }
+
+    private Pom pom(String gav) {
+        if (poms.containsKey(gav)) {
+            return poms.get(gav);
+        }
+        Pom pom = null;
+        Path file = findPom(gav);
+        if (file != null) {
+            try (InputStream is = Files.newInputStream(file)) {
+                pom = parse(new SAXReader().read(is));
+            } catch (IOException | DocumentException e) {
+                log.warn("Unable to read pom {}: {}", file, e.getMessage());
+            }
+        }
+        poms.put(gav, pom);
+        return pom;
+    }
+
+    private Path findPom(String gav) {
+        String[] parts = gav.split(":");
+        if (parts.length != 3) {
+            return null;
+        }
+        Path versionDir = cacheDir.resolve(parts[0]).resolve(parts[1]).resolve(parts[2]);
+        if (!Files.isDirectory(versionDir)) {
+            return null;
+        }
+        String fileName = parts[1] + "-" + parts[2] + ".pom";
+        try (DirectoryStream<Path> hashDirs = Files.newDirectoryStream(versionDir)) {
+            for (Path hashDir : hashDirs) {
+                Path pom = hashDir.resolve(fileName);
+                if (Files.isRegularFile(pom)) {
+                    return pom;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading the gradle cache directory " + versionDir, e);
+        }
+        return null;
+    }
+
+    private static Pom parse(Document document) {
+        Element project = document.getRootElement();
+        String parent = null;
+        Element parentElement = project.element("parent");
+        if (parentElement != null) {
+            parent = coordinates(parentElement);
+        }
+        Map<String, String> props = new LinkedHashMap<>();
+        Element propertiesElement = project.element("properties");
+        if (propertiesElement != null) {
+            for (Element property : propertiesElement.elements()) {
+                props.put(property.getName(), property.getTextTrim());
+            }
+        }
+        List<String> imports = new ArrayList<>();
+        Element management = project.element("dependencyManagement");
+        Element dependencies = management != null ? management.element("dependencies") : null;
+        if (dependencies != null) {
+            for (Element dependency : dependencies.elements("dependency")) {
+                if ("import".equals(dependency.elementTextTrim("scope"))) {
+                    String gav = coordinates(dependency);
+                    if (gav != null) {
+                        imports.add(gav);
+                    }
+                }
+            }
+        }
+        return new Pom(parent, props, imports);
+    }
+
+    private static String coordinates(Element element) {
+        String groupId = element.elementTextTrim("groupId");
+        String artifactId = element.elementTextTrim("artifactId");
+        String version = element.elementTextTrim("version");
+        if (groupId == null || artifactId == null || version == null) {
+            return null;
+        }
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
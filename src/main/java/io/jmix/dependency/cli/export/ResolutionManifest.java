@@ -0,0 +1,107 @@
+package io.jmix.dependency.cli.export;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The module versions one {@code resolveAll} run resolved, as written by {@code resolve-support.gradle} when the
+ * {@code resolutionManifest} project property is set ({@code resolve-jmix --resolution-manifest}).
+ * <p>
+ * Plain text, one {@code group:module:version} per line, grouped under a {@code [configuration]} header per
+ * resolved configuration ({@code [buildscript:classpath]} holds the Gradle plugins the build itself ran with -
+ * the Jmix plugin and its closure, which an offline Jmix build needs as much as the libraries -
+ * {@code [recovery]} the versions force-downloaded by the recovery passes):
+ * <pre>
+ * # deptool resolution manifest v1
+ * [compileClasspath]
+ * io.jmix.bom:jmix-bom:2.8.0
+ * io.jmix.core:jmix-core:2.8.0
+ * </pre>
+ * {@code export --resolution-manifest} copies only these versions (see {@link PomClosure} for the parent and BOM
+ * poms they need), so a Gradle user home shared by the resolves of several Jmix versions can still be exported
+ * one release at a time.
+ */
+public class ResolutionManifest {
+
+    private static final String HEADER = "# deptool resolution manifest v1";
+
+    private final Map<String, Set<String>> configurations = new LinkedHashMap<>();
+
+    public static ResolutionManifest load(Path file) {
+        ResolutionManifest manifest = new ResolutionManifest();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Set<String> current = null;
+            for (String line; (line = reader.readLine()) != null; ) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("[") && line.endsWith("]")) {
+                    current = manifest.configurations.computeIfAbsent(line.substring(1, line.length() - 1),
+                            name -> new TreeSet<>());
+                } else if (current == null) {
+                    throw new RuntimeException("Resolution manifest " + file + " lists '" + line +
+                            "' before any [configuration] header");
+                } else {
+                    current.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read the resolution manifest " + file, e);
+        }
+        return manifest;
+    }
+
+    /**
+     * Adds the configurations of another manifest, e.g. of one shard of a sharded {@code resolve-jmix}. A
+     * configuration both hold ({@code [recovery]}) gets the union of their versions.
+     */
+    public ResolutionManifest merge(ResolutionManifest other) {
+        other.configurations.forEach((name, components) ->
+                configurations.computeIfAbsent(name, key -> new TreeSet<>()).addAll(components));
+        return this;
+    }
+
+    /** Writes the manifest in the format {@code resolve-support.gradle} writes it in. */
+    public void write(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.write('\n');
+                for (Map.Entry<String, Set<String>> entry : configurations.entrySet()) {
+                    writer.write("[" + entry.getKey() + "]\n");
+                    for (String component : entry.getValue()) {
+                        writer.write(component);
+                        writer.write('\n');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the resolution manifest " + file, e);
+        }
+    }
+
+    /** Configuration name to the module versions resolved in it, in file order. */
+    public Map<String, Set<String>> configurations() {
+        return Collections.unmodifiableMap(configurations);
+    }
+
+    /** All module versions of all configurations, sorted. */
+    public Set<String> components() {
+        Set<String> components = new TreeSet<>();
+        configurations.values().forEach(components::addAll);
+        return components;
+    }
+}
@@ -80,6 +80,14 @@ public class GradleArgs {
         return prop("org.gradle.jvmargs", value);
     }
 
+    /**
+     * Overrides the number of Gradle workers ({@code org.gradle.workers.max}), which bounds the parallel metadata and
+     * artifact downloads of a resolution. When null, {@code JmixGradleClient} applies its default.
+     */
+    public GradleArgs gradleWorkers(Integer value) {
+        return prop("org.gradle.workers.max", value != null ? String.valueOf(value) : null);
+    }
+
     /** The comma-separated list of dependencies (GAV) to resolve. */
     public GradleArgs modules(Collection<String> modules) {
         if (modules != null && !modules.isEmpty()) {
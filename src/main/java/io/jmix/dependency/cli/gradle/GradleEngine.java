@@ -0,0 +1,34 @@
+package io.jmix.dependency.cli.gradle;
+
+/**
+ * How {@link JmixGradleClient} runs the resolution build.
+ */
+public enum GradleEngine {
+
+    /** The generated wrapper as a subprocess; only its console output and exit code come back. */
+    WRAPPER("wrapper"),
+    /**
+     * The Gradle Tooling API on the wrapper's distribution: a connection to a Gradle daemon, with structured
+     * progress events (configurations resolved, files downloaded) reported by deptool.
+     */
+    TOOLING_API("tooling-api");
+
+    private final String id;
+
+    GradleEngine(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public static GradleEngine fromId(String id) {
+        for (GradleEngine engine : GradleEngine.values()) {
+            if (engine.getId().equalsIgnoreCase(id)) {
+                return engine;
+            }
+        }
+        throw new RuntimeException("Unknown Gradle engine '" + id + "', expected 'wrapper' or 'tooling-api'");
+    }
+}
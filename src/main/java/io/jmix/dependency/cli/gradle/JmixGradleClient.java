@@ -4,24 +4,38 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
- * Runs a Gradle task by invoking the workspace's generated Gradle <b>wrapper</b> as a subprocess.
+ * Runs a Gradle task in the generated workspace, by default by invoking its Gradle <b>wrapper</b> as a subprocess.
  * <p>
- * v3 deliberately does NOT use the Gradle Tooling API: deptool only ever runs a task (it never fetches
- * Tooling models), and an embedded Tooling API would tie the tool to a single client version that cannot
- * span every framework line's Gradle (1.x->7.x, 2.x->8.x, 3.x->9.5). Driving the wrapper as a separate
- * process makes the daemon Gradle version whatever the wrapper's {@code distributionUrl} pins, decoupling
- * it from the tool entirely. The only requirement is that deptool's JVM can launch the daemon - JDK 17
- * covers Gradle 7.x through 9.x.
+ * Driving the wrapper as a separate process makes the daemon Gradle version whatever the wrapper's
+ * {@code distributionUrl} pins, decoupling it from the tool entirely - every framework line's Gradle (1.x->7.x,
+ * 2.x->8.x, 3.x->9.5) works. The only requirement is that deptool's JVM can launch the daemon - JDK 17 covers
+ * Gradle 7.x through 9.x. The price is that only the console output and an exit code come back.
+ * <p>
+ * {@link GradleEngine#TOOLING_API} runs the same task through the embedded Tooling API instead
+ * ({@link ToolingApiRunner}). It still uses the wrapper's distribution, so the version decoupling holds, and adds
+ * structured progress - each configuration resolved and file downloaded is reported as it happens, with a summary
+ * at the end. A Tooling API build always runs in a daemon: without {@link #useDaemon} it is stopped after the build.
+ * <p>
+ * By default every run is {@code --no-daemon}. {@link #useDaemon} opts into a Gradle daemon that outlives the
+ * run, so the next resolution against the same Gradle user home skips JVM startup, build-script compilation and
+ * warm-up: Gradle reuses a running daemon whose JVM args match, and deptool always writes the same
+ * {@code org.gradle.jvmargs} for the same settings. The daemon stops itself after the idle timeout, or at the end of
+ * a batch through {@link #stopDaemon()} / {@link #stopDaemons}. {@code gradlew --stop} is not scoped to deptool: it
+ * stops every daemon of that Gradle version in the Gradle user home, including those of unrelated builds sharing it.
  */
 public class JmixGradleClient {
 
@@ -38,26 +52,145 @@ public class JmixGradleClient {
      */
     public static final String DEFAULT_GRADLE_JVM_ARGS = "-Xmx2g -XX:MaxMetaspaceSize=512m";
 
+    /**
+     * Baseline Gradle worker count. Gradle downloads the metadata and artifacts of a resolution in parallel, on at
+     * most {@code org.gradle.workers.max} workers - by default one per CPU core, which leaves a network-bound
+     * resolution on a small CI machine mostly waiting. A caller's own value ({@code --gradle-workers}) wins.
+     */
+    public static final int DEFAULT_GRADLE_WORKERS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+    /** How long a reused daemon ({@link #useDaemon}) waits idle for the next build before it exits. */
+    public static final int DEFAULT_DAEMON_IDLE_TIMEOUT_MINUTES = 10;
+
     private final Path projectDir;
     private final String gradleUserHomeDir;
+    private Integer daemonIdleTimeoutMinutes;
+    private GradleEngine engine = GradleEngine.WRAPPER;
 
     public JmixGradleClient(Path projectDir, String gradleUserHomeDir) {
         this.projectDir = projectDir;
         this.gradleUserHomeDir = gradleUserHomeDir;
     }
 
+    /** Runs the builds on a Gradle daemon that is kept for reuse until it has been idle for the given time. */
+    public JmixGradleClient useDaemon(int idleTimeoutMinutes) {
+        if (idleTimeoutMinutes < 1) {
+            throw new IllegalArgumentException("Gradle daemon idle timeout must be positive: " + idleTimeoutMinutes);
+        }
+        this.daemonIdleTimeoutMinutes = idleTimeoutMinutes;
+        return this;
+    }
+
+    public JmixGradleClient engine(GradleEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
     /**
-     * Runs a single task via the wrapper, streaming output to the console.
+     * Runs a single task via the wrapper (or the Tooling API), streaming output to the console.
      * <p>
      * The {@link GradleArgs} project properties are written to {@code <projectDir>/gradle.properties} rather
      * than passed as {@code -P} on the command line; only raw arguments (and {@code --gradle-user-home},
-     * {@code --console=plain}, {@code --no-daemon}) go on the command line. This keeps the command length
-     * bounded no matter how many Jmix modules are resolved - the {@code jmixModules} list alone can hold
+     * {@code --console=plain}, {@code --no-daemon} or {@code --daemon}) go on the command line. This keeps the
+     * command length bounded no matter how many Jmix modules are resolved - the {@code jmixModules} list alone can hold
      * hundreds of coordinates with commercial add-ons, which would otherwise overflow the OS limit.
      */
     public void runTask(String taskName, GradleArgs args) {
         writeGradleProperties(args.properties());
+        if (engine == GradleEngine.TOOLING_API) {
+            Path dir = projectDir.toAbsolutePath().normalize();
+            try {
+                ToolingApiRunner.run(dir, gradleUserHome(), taskName, args.rawArgs());
+            } finally {
+                if (daemonIdleTimeoutMinutes == null) {
+                    ToolingApiRunner.disconnect(dir, gradleUserHome());
+                }
+            }
+            return;
+        }
 
+        List<String> command = wrapperCommand();
+        command.add(taskName);
+        command.addAll(args.rawArgs());
+        command.add("--console=plain");
+        if (daemonIdleTimeoutMinutes != null) {
+            command.add("--daemon");
+        } else {
+            // One-shot batch tool: no lingering daemon to hold locks on the gradle-user-home that
+            // `export` later walks, and re-runs with a different home are safe.
+            command.add("--no-daemon");
+        }
+
+        int exitCode = run(command, "Gradle task '" + taskName + "'");
+        if (exitCode != 0) {
+            throw new RuntimeException("Gradle task '" + taskName + "' failed with exit code " + exitCode);
+        }
+    }
+
+    /**
+     * Stops the daemons of this project's Gradle version registered in the Gradle user home ({@code gradlew --stop}),
+     * releasing the cache locks before an export. This is not limited to the daemons deptool started: every daemon of
+     * that Gradle version using the same Gradle user home stops, including those of unrelated builds running
+     * concurrently against it. A failure is only logged: the daemons still exit on their idle timeout. With the
+     * Tooling API engine, the daemons this process connected to are stopped through the connection.
+     */
+    public void stopDaemon() {
+        if (disconnect()) {
+            return;
+        }
+        stopWrapperDaemons();
+    }
+
+    /**
+     * {@link #stopDaemon()} for several clients, e.g. the shards or versions of a batch. Since {@code gradlew --stop}
+     * already stops every daemon of a Gradle version in a Gradle user home, it runs once per distinct distribution and
+     * user home rather than once per client; Tooling API connections are still closed one by one.
+     */
+    public static void stopDaemons(Collection<JmixGradleClient> clients) {
+        Set<String> stopped = new HashSet<>();
+        for (JmixGradleClient client : clients) {
+            if (!client.disconnect() && stopped.add(client.daemonScope())) {
+                client.stopWrapperDaemons();
+            }
+        }
+    }
+
+    private boolean disconnect() {
+        return engine == GradleEngine.TOOLING_API
+                && ToolingApiRunner.disconnect(projectDir.toAbsolutePath().normalize(), gradleUserHome());
+    }
+
+    private void stopWrapperDaemons() {
+        List<String> command = wrapperCommand();
+        command.add("--stop");
+        if (run(command, "Gradle daemon stop") != 0) {
+            log.warn("Could not stop the Gradle daemon; it exits after its idle timeout");
+        }
+    }
+
+    /**
+     * What {@code gradlew --stop} reaches: the wrapper's {@code distributionUrl} (i.e. the Gradle version) within the
+     * Gradle user home. Falls back to the project dir when the wrapper properties can't be read, so such a client is
+     * never merged with another.
+     */
+    private String daemonScope() {
+        Path wrapperProperties = projectDir.resolve("gradle/wrapper/gradle-wrapper.properties");
+        String distribution = null;
+        try (InputStream in = Files.newInputStream(wrapperProperties)) {
+            Properties props = new Properties();
+            props.load(in);
+            distribution = props.getProperty("distributionUrl");
+        } catch (IOException e) {
+            log.debug("Unable to read {}", wrapperProperties, e);
+        }
+        if (distribution == null) {
+            distribution = projectDir.toAbsolutePath().normalize().toString();
+        }
+        return gradleUserHome() + "|" + distribution;
+    }
+
+    /** The wrapper of the project plus {@code --gradle-user-home}. */
+    private List<String> wrapperCommand() {
         // Absolute wrapper path: the child process runs with its working directory set to the project dir,
         // so a relative gradlew path would resolve against that dir and fail ("system cannot find the path").
         Path dir = projectDir.toAbsolutePath().normalize();
@@ -69,36 +202,31 @@ public class JmixGradleClient {
         } else {
             command.add(dir.resolve("gradlew").toString());
         }
-        command.add(taskName);
-        command.addAll(args.rawArgs());
         command.add("--gradle-user-home");
         // Absolute: Gradle resolves a relative --gradle-user-home against the daemon's working dir (the project
         // dir), which would land the cache somewhere `export` (run from a different dir) wouldn't find.
-        command.add(Paths.get(gradleUserHomeDir).toAbsolutePath().normalize().toString());
-        command.add("--console=plain");
-        // One-shot batch tool: no lingering daemon to hold locks on the gradle-user-home that
-        // `export` later walks, and re-runs with a different home are safe.
-        command.add("--no-daemon");
+        command.add(gradleUserHome().toString());
+        return command;
+    }
+
+    private Path gradleUserHome() {
+        return Paths.get(gradleUserHomeDir).toAbsolutePath().normalize();
+    }
 
+    private int run(List<String> command, String what) {
         log.info("Running: {}", String.join(" ", command));
 
         ProcessBuilder builder = new ProcessBuilder(command)
-                .directory(dir.toFile())
+                .directory(projectDir.toAbsolutePath().normalize().toFile())
                 .inheritIO();
-
-        int exitCode;
         try {
             Process process = builder.start();
-            exitCode = process.waitFor();
+            return process.waitFor();
         } catch (IOException e) {
             throw new RuntimeException("Failed to start Gradle wrapper in " + projectDir, e);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new RuntimeException("Gradle task '" + taskName + "' was interrupted", e);
-        }
-
-        if (exitCode != 0) {
-            throw new RuntimeException("Gradle task '" + taskName + "' failed with exit code " + exitCode);
+            throw new RuntimeException(what + " was interrupted", e);
         }
     }
 
@@ -113,6 +241,10 @@ public class JmixGradleClient {
         props.putAll(properties);
         // Raise the daemon heap so vaadinBuildFrontend / a full module set does not OOM on Gradle's default.
         props.putIfAbsent("org.gradle.jvmargs", DEFAULT_GRADLE_JVM_ARGS);
+        props.putIfAbsent("org.gradle.workers.max", String.valueOf(DEFAULT_GRADLE_WORKERS));
+        if (daemonIdleTimeoutMinutes != null) {
+            props.setProperty("org.gradle.daemon.idletimeout", String.valueOf(daemonIdleTimeoutMinutes * 60_000L));
+        }
         try (OutputStream os = Files.newOutputStream(file)) {
             props.store(os, "Generated by deptool - resolution project properties");
         } catch (IOException e) {
@@ -0,0 +1,139 @@
+package io.jmix.dependency.cli.gradle;
+
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.events.FailureResult;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.download.FileDownloadFinishEvent;
+import org.gradle.tooling.events.download.FileDownloadNotFoundResult;
+import org.gradle.tooling.events.download.FileDownloadOperationDescriptor;
+import org.gradle.tooling.events.download.FileDownloadResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs builds through the Gradle Tooling API ({@link GradleEngine#TOOLING_API}).
+ * <p>
+ * The connector uses the build's own distribution - the generated wrapper's {@code distributionUrl} - so the Gradle
+ * version stays pinned by the workspace exactly as with the wrapper engine; the Tooling API client talks to any
+ * Gradle from 4.0 on. Connections are kept per project directory and Gradle user home until {@link #disconnect} or
+ * JVM exit, so consecutive builds of one deptool process go to the same warm daemon.
+ */
+class ToolingApiRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolingApiRunner.class);
+
+    private static final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                connections.values().forEach(connection -> connection.project().close())));
+    }
+
+    private record Connection(GradleConnector connector, ProjectConnection project) {
+    }
+
+    static void run(Path projectDir, Path gradleUserHome, String taskName, List<String> arguments) {
+        ProjectConnection project = connections.computeIfAbsent(key(projectDir, gradleUserHome),
+                key -> connect(projectDir, gradleUserHome)).project();
+        ProgressLog progress = new ProgressLog();
+        long start = System.currentTimeMillis();
+        try {
+            project.newBuild()
+                    .forTasks(taskName)
+                    .withArguments(arguments)
+                    .setStandardOutput(System.out)
+                    .setStandardError(System.err)
+                    .setColorOutput(false)
+                    .addProgressListener(progress, EnumSet.of(OperationType.GENERIC, OperationType.FILE_DOWNLOAD))
+                    .run();
+        } catch (GradleConnectionException | IllegalStateException e) {
+            throw new RuntimeException("Gradle task '" + taskName + "' failed", e);
+        } finally {
+            log.info("Gradle task '{}': {} configuration(s) resolved, {} file(s) downloaded ({} KiB), {} download(s) " +
+                            "failed in {} s", taskName, progress.configurations, progress.downloads,
+                    progress.downloadedBytes / 1024, progress.failedDownloads, (System.currentTimeMillis() - start) / 1000);
+        }
+    }
+
+    /**
+     * Closes the connection of the project and stops the daemons it started. Returns {@code false} if this process
+     * holds no connection for it.
+     */
+    static boolean disconnect(Path projectDir, Path gradleUserHome) {
+        Connection connection = connections.remove(key(projectDir, gradleUserHome));
+        if (connection == null) {
+            return false;
+        }
+        connection.project().close();
+        connection.connector().disconnect();
+        return true;
+    }
+
+    private static Connection connect(Path projectDir, Path gradleUserHome) {
+        log.info("Connecting to Gradle in {} via the Tooling API", projectDir);
+        GradleConnector connector = GradleConnector.newConnector()
+                .forProjectDirectory(projectDir.toFile())
+                .useGradleUserHomeDir(gradleUserHome.toFile())
+                .useBuildDistribution();
+        try {
+            return new Connection(connector, connector.connect());
+        } catch (GradleConnectionException e) {
+            throw new RuntimeException("Failed to connect to Gradle in " + projectDir, e);
+        }
+    }
+
+    private static String key(Path projectDir, Path gradleUserHome) {
+        return projectDir + "|" + gradleUserHome;
+    }
+
+    /**
+     * Reports the progress events of one build: every resolved configuration ("Resolve dependencies of :iso_001_api")
+     * as it completes, every downloaded file at debug level and failed downloads as warnings.
+     */
+    private static class ProgressLog implements ProgressListener {
+
+        private int configurations;
+        private int downloads;
+        private int failedDownloads;
+        private long downloadedBytes;
+
+        @Override
+        public void statusChanged(ProgressEvent event) {
+            if (!(event instanceof FinishEvent finish)) {
+                return;
+            }
+            if (event instanceof FileDownloadFinishEvent download) {
+                String uri = ((FileDownloadOperationDescriptor) download.getDescriptor()).getUri().toString();
+                FileDownloadResult result = download.getResult();
+                if (result instanceof FailureResult) {
+                    failedDownloads++;
+                    log.warn("Download failed: {}", uri);
+                } else if (!(result instanceof FileDownloadNotFoundResult)) {
+                    // Not found is a repository that does not have the module - normal while probing repositories.
+                    downloads++;
+                    downloadedBytes += result.getBytesDownloaded();
+                    log.debug("Downloaded {} ({} bytes)", uri, result.getBytesDownloaded());
+                }
+            } else if (event.getDescriptor().getDisplayName().startsWith("Resolve dependencies of ")) {
+                configurations++;
+                String configuration = event.getDescriptor().getDisplayName().substring("Resolve dependencies of ".length());
+                if (finish.getResult() instanceof FailureResult) {
+                    log.warn("Resolution failed: {}", configuration);
+                } else {
+                    log.info("Resolved {} ({} so far)", configuration, configurations);
+                }
+            }
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class NpmDownloadPlan {
         addVersion(name, version);
         resolvedRefs.put(key(name, version), ref);
         resolvedKeys.add(key(name, version));
+        // A pin seen earlier (single-pass collection) turns out to be installed somewhere - it is not a variant.
+        variantKeys.remove(key(name, version));
     }
 
     public void addVariant(String name, String version) {
@@ -56,6 +58,21 @@ public class NpmDownloadPlan {
         return resolvedRefs.get(key(name, version));
     }
 
+    /** Package names with at least one version whose tarball URL is not known from a lockfile. */
+    public Set<String> namesWithoutKnownRef() {
+        Set<String> names = new TreeSet<>();
+        for (Map.Entry<String, TreeSet<String>> e : versionsByName.entrySet()) {
+            for (String version : e.getValue()) {
+                ResolvedRef ref = knownRef(e.getKey(), version);
+                if (ref == null || ref.url() == null) {
+                    names.add(e.getKey());
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
     public int totalArtifacts() {
         return versionsByName.values().stream().mapToInt(Set::size).sum();
     }
@@ -1,21 +1,39 @@
 package io.jmix.dependency.cli.npm;
 
+import io.jmix.dependency.cli.export.ArchiveWriter;
+import io.jmix.dependency.cli.export.BlobStore;
+import io.jmix.dependency.cli.export.Checksums;
+import io.jmix.dependency.cli.export.ExportRecords;
+import org.apache.commons.io.FileUtils;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Downloads every tarball in an {@link NpmDownloadPlan} into a directory laid out so that
@@ -24,74 +42,262 @@ import java.util.TreeSet;
  * This replaces the {@code node-tgz-downloader} step: it pulls exactly the versions derived from the
  * lockfile (resolved + exact-pin variants), so it never re-resolves peerDependencies to a different
  * version. No Node.js is required at export time.
+ * <p>
+ * With {@link #archiveTo} the tarballs go into a zip archive (same layout) instead of the target directory. Each
+ * one is still spooled to a temporary file first - its SHA-512 has to be verified and a stored zip entry needs its
+ * CRC before the data - but that file lives in a private temporary directory and is deleted right away.
+ * <p>
+ * With {@link #recordTo} every tarball of the export gets a line in an {@link ExportRecords} file, its SHA-256
+ * digested during the download.
  */
 public class NpmExporter implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(NpmExporter.class);
 
+    /** Suffix of a tarball still being downloaded; {@code upload-npm} only picks up {@code .tgz} files. */
+    private static final String PART_SUFFIX = ".part";
+
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+
+    /** Export totals. Updated concurrently by the download workers; the lists are sorted once the export is done. */
     public static class Report {
-        public int downloaded;
-        public int skippedExisting;
-        public final List<String> missing = new ArrayList<>();
-        public final List<String> integrityMismatch = new ArrayList<>();
+        public final AtomicInteger downloaded = new AtomicInteger();
+        public final AtomicInteger skippedExisting = new AtomicInteger();
+        public final List<String> missing = Collections.synchronizedList(new ArrayList<>());
+        public final List<String> integrityMismatch = Collections.synchronizedList(new ArrayList<>());
     }
 
     private final Path targetDir;
     private final NpmRegistryClient registry;
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
+    private final int concurrency;
+    private final CloseableHttpClient httpClient;
+    private ArchiveWriter archive;
+    private BlobStore store;
+    private Path spoolDir;
+    private ExportRecords records;
 
     public NpmExporter(Path targetDir, NpmRegistryClient registry) {
+        this(targetDir, registry, DEFAULT_CONCURRENCY, DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    }
+
+    /**
+     * @param concurrency           number of tarballs downloaded in parallel
+     * @param maxConnectionsPerHost cap on simultaneous connections to one host (registry or tarball CDN)
+     */
+    public NpmExporter(Path targetDir, NpmRegistryClient registry, int concurrency, int maxConnectionsPerHost) {
+        if (concurrency < 1 || maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("Download concurrency and connections per host must be positive");
+        }
         this.targetDir = targetDir;
         this.registry = registry;
+        this.concurrency = concurrency;
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(maxConnectionsPerHost)
+                        .setMaxConnTotal(Math.max(concurrency, maxConnectionsPerHost))
+                        .build())
+                .build();
+    }
+
+    /** Writes the tarballs into {@code archive} instead of the target directory. */
+    public NpmExporter archiveTo(ArchiveWriter archive) {
+        try {
+            this.spoolDir = Files.createTempDirectory("deptool-npm-");
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create a temporary download directory", e);
+        }
+        this.archive = archive;
+        return this;
+    }
+
+    /** Stores each tarball in {@code store} and hard-links it into the target directory. */
+    public NpmExporter storeIn(BlobStore store) {
+        this.store = store;
+        return this;
     }
 
+    /** Writes a record of every tarball in the export (downloaded or already there) to {@code records}. */
+    public NpmExporter recordTo(ExportRecords records) {
+        this.records = records;
+        return this;
+    }
+
+    /**
+     * Downloads the plan on {@code concurrency} workers. The registry metadata of every package with a variant
+     * version is prefetched up front, so those lookups run alongside the first wave of resolved downloads.
+     */
     public Report export(NpmDownloadPlan plan) {
         Report report = new Report();
-        for (Map.Entry<String, TreeSet<String>> e : plan.versionsByName().entrySet()) {
-            String name = e.getKey();
-            for (String version : e.getValue()) {
-                ResolvedRef ref = plan.knownRef(name, version);
-                if (ref == null || ref.url() == null) {
-                    ref = registry.lookup(name, version);
-                }
-                if (ref == null || ref.url() == null) {
-                    log.warn("No tarball URL for {}@{} - skipping", name, version);
-                    report.missing.add(NpmDownloadPlan.key(name, version));
-                    continue;
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "npm-download-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        registry.prefetch(plan.namesWithoutKnownRef());
+        try {
+            for (Map.Entry<String, TreeSet<String>> e : plan.versionsByName().entrySet()) {
+                String name = e.getKey();
+                for (String version : e.getValue()) {
+                    executor.execute(() -> exportOne(plan, name, version, report));
                 }
-                downloadOne(name, version, ref, report);
             }
+        } finally {
+            awaitDownloads(executor);
         }
+        Collections.sort(report.missing);
+        Collections.sort(report.integrityMismatch);
         return report;
     }
 
-    private void downloadOne(String name, String version, ResolvedRef ref, Report report) {
+    private void awaitDownloads(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("npm downloads did not finish");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for npm downloads", e);
+        }
+    }
+
+    private void exportOne(NpmDownloadPlan plan, String name, String version, Report report) {
+        ResolvedRef ref = plan.knownRef(name, version);
+        if (ref == null || ref.url() == null) {
+            ref = registry.lookup(name, version);
+        }
+        if (ref == null || ref.url() == null) {
+            log.warn("No tarball URL for {}@{} - skipping", name, version);
+            report.missing.add(NpmDownloadPlan.key(name, version));
+            return;
+        }
+        String source = plan.resolvedKeys().contains(NpmDownloadPlan.key(name, version)) ? "resolved" : "variant";
+        downloadOne(name, version, ref, source, report);
+    }
+
+    /**
+     * Streams the tarball through a SHA-512 {@link DigestInputStream} into a temporary file next to the target, then
+     * moves it into place. Memory use is a fixed copy buffer regardless of the package size, and an interrupted
+     * download never leaves a truncated {@code .tgz} behind for {@code upload-npm} to pick up.
+     */
+    private void downloadOne(String name, String version, ResolvedRef ref, String source, Report report) {
         Path file = targetPath(name, version);
-        if (Files.exists(file)) {
-            report.skippedExisting++;
+        String relativeName = targetDir.relativize(file).toString().replace(File.separatorChar, '/');
+        if (archive == null && Files.exists(file)) {
+            if (records != null) {
+                try {
+                    records.write(NpmDownloadPlan.key(name, version), relativeName, null, Files.size(file),
+                            existingSha256(file), source);
+                } catch (IOException e) {
+                    log.warn("Unable to record {}: {}", file, e.getMessage());
+                }
+            }
+            report.skippedExisting.incrementAndGet();
             return;
         }
+        Path partFile = null;
         try {
+            Path partDir = archive != null ? spoolDir : file.getParent();
+            Files.createDirectories(partDir);
+            partFile = Files.createTempFile(partDir, file.getFileName().toString(), PART_SUFFIX);
+            Path target = partFile;
             HttpGet get = new HttpGet(ref.url());
-            byte[] bytes = httpClient.execute(get, response -> {
+            // Only a records file needs the SHA-256 (and then SHA-512 comes from the same Checksums); otherwise the
+            // integrity check's SHA-512 is the only digest computed.
+            Checksums checksums = records != null ? new Checksums() : null;
+            String sha512 = httpClient.execute(get, response -> {
                 if (response.getCode() != 200) {
                     throw new IOException("HTTP " + response.getCode() + " for " + ref.url());
                 }
-                return EntityUtils.toByteArray(response.getEntity());
+                InputStream content = response.getEntity().getContent();
+                if (checksums != null) {
+                    try (InputStream in = checksums.digesting(content)) {
+                        Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return Base64.getEncoder().encodeToString(HexFormat.of().parseHex(checksums.sha512()));
+                }
+                MessageDigest digest = sha512Digest();
+                try (InputStream in = new DigestInputStream(content, digest)) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return Base64.getEncoder().encodeToString(digest.digest());
             });
 
-            if (!verifyIntegrity(bytes, ref.integrity())) {
+            long size = Files.size(partFile);
+            if (!verifyIntegrity(sha512, ref.integrity())) {
                 log.warn("Integrity mismatch for {}@{}", name, version);
                 report.integrityMismatch.add(NpmDownloadPlan.key(name, version));
             }
 
-            Files.createDirectories(file.getParent());
-            Files.write(file, bytes);
-            report.downloaded++;
+            if (archive != null) {
+                if (!archive.add(relativeName, partFile)) {
+                    report.skippedExisting.incrementAndGet();
+                    return;
+                }
+            } else {
+                if (store != null) {
+                    store.materialize(partFile, file);
+                } else {
+                    moveIntoPlace(partFile, file);
+                }
+                if (checksums != null) {
+                    // Lets a later export with a records file record this tarball without hashing it again.
+                    writeSha256Sidecar(file, checksums.sha256());
+                } else {
+                    // A sidecar left from an earlier copy of the tarball may not match this one.
+                    Files.deleteIfExists(Checksums.sidecar(file, "sha256"));
+                }
+            }
+            if (records != null) {
+                records.write(NpmDownloadPlan.key(name, version), relativeName, null, size, checksums.sha256(), source);
+            }
+            report.downloaded.incrementAndGet();
             log.info("Downloaded {}@{}", name, version);
         } catch (Exception ex) {
             log.warn("Failed to download {}@{} from {}: {}", name, version, ref.url(), ex.getMessage());
             report.missing.add(NpmDownloadPlan.key(name, version));
+        } finally {
+            if (partFile != null) {
+                try {
+                    Files.deleteIfExists(partFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /** The SHA-256 of a tarball already in the target: from its sidecar, else hashed once and the sidecar written. */
+    private static String existingSha256(Path file) throws IOException {
+        Path sidecar = Checksums.sidecar(file, "sha256");
+        if (Files.exists(sidecar)) {
+            return Files.readString(sidecar, StandardCharsets.US_ASCII).trim();
+        }
+        Checksums checksums = new Checksums();
+        checksums.digest(file);
+        writeSha256Sidecar(file, checksums.sha256());
+        return checksums.sha256();
+    }
+
+    private static void writeSha256Sidecar(Path file, String sha256) throws IOException {
+        Files.writeString(Checksums.sidecar(file, "sha256"), sha256, StandardCharsets.US_ASCII);
+    }
+
+    private static MessageDigest sha512Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+    }
+
+    private static void moveIntoPlace(Path partFile, Path file) throws IOException {
+        try {
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -107,18 +313,12 @@ public class NpmExporter implements AutoCloseable {
         return dir.resolve(unscoped + "-" + version + ".tgz");
     }
 
-    private boolean verifyIntegrity(byte[] bytes, String integrity) {
+    /** @param sha512 Base64 SHA-512 of the downloaded bytes */
+    private boolean verifyIntegrity(String sha512, String integrity) {
         if (integrity == null || !integrity.startsWith("sha512-")) {
             return true; // nothing to check (e.g. legacy shasum-only entries)
         }
-        try {
-            String expected = integrity.substring("sha512-".length());
-            byte[] digest = MessageDigest.getInstance("SHA-512").digest(bytes);
-            String actual = Base64.getEncoder().encodeToString(digest);
-            return expected.equals(actual);
-        } catch (Exception e) {
-            return true; // don't fail the export over a hashing problem
-        }
+        return integrity.substring("sha512-".length()).equals(sha512);
     }
 
     @Override
@@ -127,5 +327,8 @@ public class NpmExporter implements AutoCloseable {
             httpClient.close();
         } catch (Exception ignored) {
         }
+        if (spoolDir != null) {
+            FileUtils.deleteQuietly(spoolDir.toFile());
+        }
     }
 }
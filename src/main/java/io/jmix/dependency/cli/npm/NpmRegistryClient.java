@@ -1,71 +1,161 @@
 package io.jmix.dependency.cli.npm;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Reads npm registry metadata (packuments) to resolve a tarball URL + integrity for a specific
  * package version. Used for "variant" versions (exact pins) that were not the resolved version and
  * therefore have no {@code resolved} URL in the lockfile. Packuments are cached per package name.
+ * <p>
+ * Only the abbreviated metadata is requested, and it is streamed: per package the cache keeps just the
+ * {@link ResolvedRef} of each version, never the packument itself. With a cache directory those reduced
+ * packuments also persist between runs ({@link PackumentDiskCache}) and are revalidated with
+ * {@code If-None-Match} / {@code If-Modified-Since}, so unchanged metadata is not downloaded again.
+ * <p>
+ * The cache is thread-safe and {@link #prefetch} fills it concurrently, so the registry round trips for all
+ * variant packages overlap each other (and the first tarball downloads) instead of being paid one by one when
+ * {@link #lookup} first needs them.
  */
 public class NpmRegistryClient implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(NpmRegistryClient.class);
 
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Asks for the abbreviated ("corgi") metadata npm itself installs from: just the install-relevant fields of each
+     * version, a fraction of the full packument for packages with hundreds of versions.
+     */
+    private static final String ABBREVIATED_METADATA =
+            "application/vnd.npm.install-v1+json; q=1.0, application/json; q=0.8, */*";
+
     private final String registryUrl;
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
-    private final Map<String, JsonObject> packumentCache = new HashMap<>();
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService executor;
+    private final PackumentDiskCache diskCache;
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final Map<String, CompletableFuture<Map<String, ResolvedRef>>> packumentCache = new ConcurrentHashMap<>();
 
     public NpmRegistryClient(String registryUrl) {
-        this.registryUrl = registryUrl.endsWith("/") ? registryUrl.substring(0, registryUrl.length() - 1) : registryUrl;
+        this(registryUrl, DEFAULT_CONCURRENCY);
     }
 
-    public ResolvedRef lookup(String name, String version) {
-        JsonObject packument = packument(name);
-        if (packument == null) {
-            return null;
+    public NpmRegistryClient(String registryUrl, int concurrency) {
+        this(registryUrl, concurrency, null);
+    }
+
+    /**
+     * @param concurrency number of packuments fetched in parallel by {@link #prefetch}
+     * @param cacheDir    directory of the persistent {@link PackumentDiskCache}, or {@code null} for none
+     */
+    public NpmRegistryClient(String registryUrl, int concurrency, Path cacheDir) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Registry concurrency must be positive: " + concurrency);
         }
-        if (!packument.has("versions") || !packument.get("versions").isJsonObject()) {
-            return null;
+        this.registryUrl = registryUrl.endsWith("/") ? registryUrl.substring(0, registryUrl.length() - 1) : registryUrl;
+        this.diskCache = cacheDir != null ? new PackumentDiskCache(cacheDir) : null;
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(concurrency)
+                        .setMaxConnTotal(concurrency)
+                        .build())
+                .build();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "npm-registry-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts fetching the packuments of the given packages in the background and returns immediately;
+     * {@link #lookup} then waits only for the packument it needs.
+     */
+    public void prefetch(Collection<String> names) {
+        if (!names.isEmpty()) {
+            log.info("Prefetching registry metadata for {} package(s)", names.size());
         }
-        JsonObject versions = packument.getAsJsonObject("versions");
-        if (!versions.has(version) || !versions.get(version).isJsonObject()) {
-            return null;
+        for (String name : names) {
+            packumentFuture(name);
         }
-        JsonObject dist = versions.getAsJsonObject(version).getAsJsonObject("dist");
-        if (dist == null || !dist.has("tarball")) {
-            return null;
+    }
+
+    public ResolvedRef lookup(String name, String version) {
+        Map<String, ResolvedRef> refs = packument(name);
+        return refs != null ? refs.get(version) : null;
+    }
+
+    private Map<String, ResolvedRef> packument(String name) {
+        CompletableFuture<Map<String, ResolvedRef>> future = packumentFuture(name);
+        Map<String, ResolvedRef> refs = future.join();
+        if (refs == null) {
+            packumentCache.remove(name, future); // failed fetch: let a later lookup try again
         }
-        String tarball = dist.get("tarball").getAsString();
-        String integrity = dist.has("integrity") ? dist.get("integrity").getAsString() : null;
-        return new ResolvedRef(tarball, integrity);
+        return refs;
     }
 
-    private JsonObject packument(String name) {
-        return packumentCache.computeIfAbsent(name, this::fetchPackument);
+    private CompletableFuture<Map<String, ResolvedRef>> packumentFuture(String name) {
+        return packumentCache.computeIfAbsent(name,
+                n -> CompletableFuture.supplyAsync(() -> fetchPackument(n), executor));
     }
 
-    private JsonObject fetchPackument(String name) {
+    private Map<String, ResolvedRef> fetchPackument(String name) {
         String encoded = name.startsWith("@") ? name.replace("/", "%2f") : name;
         String url = registryUrl + "/" + encoded;
+        PackumentDiskCache.Entry cached = diskCache != null ? diskCache.read(registryUrl, name) : null;
         try {
             HttpGet get = new HttpGet(url);
+            get.addHeader("Accept", ABBREVIATED_METADATA);
+            if (cached != null && cached.etag() != null) {
+                get.addHeader("If-None-Match", cached.etag());
+            }
+            if (cached != null && cached.lastModified() != null) {
+                get.addHeader("If-Modified-Since", cached.lastModified());
+            }
             return httpClient.execute(get, response -> {
+                if (response.getCode() == 304 && cached != null) {
+                    notModified.incrementAndGet();
+                    return cached.versions();
+                }
                 if (response.getCode() != 200) {
                     log.warn("Registry metadata request failed ({}) for {}", response.getCode(), name);
                     return null;
                 }
-                String body = EntityUtils.toString(response.getEntity());
-                return JsonParser.parseString(body).getAsJsonObject();
+                Map<String, ResolvedRef> refs;
+                try (Reader reader = new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8)) {
+                    refs = parseDistRefs(reader);
+                }
+                fetched.incrementAndGet();
+                if (diskCache != null) {
+                    diskCache.write(name, new PackumentDiskCache.Entry(registryUrl,
+                            headerValue(response, "ETag"), headerValue(response, "Last-Modified"), refs));
+                }
+                return refs;
             });
         } catch (Exception e) {
             log.warn("Could not fetch registry metadata for {}: {}", name, e.getMessage());
@@ -73,8 +163,79 @@ public class NpmRegistryClient implements AutoCloseable {
         }
     }
 
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * Streams a (full or abbreviated) packument and keeps only {@code versions.<v>.dist.tarball/integrity};
+     * everything else is skipped without being materialized. Versions without a tarball are left out.
+     */
+    public static Map<String, ResolvedRef> parseDistRefs(Reader packument) throws IOException {
+        Map<String, ResolvedRef> refs = new HashMap<>();
+        JsonReader reader = new JsonReader(packument);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"versions".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String version = reader.nextName();
+                ResolvedRef ref = readVersionDist(reader);
+                if (ref != null) {
+                    refs.put(version, ref);
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return refs;
+    }
+
+    private static ResolvedRef readVersionDist(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        ResolvedRef ref = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"dist".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String tarball = null;
+            String integrity = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if ("tarball".equals(field) && reader.peek() == JsonToken.STRING) {
+                    tarball = reader.nextString();
+                } else if ("integrity".equals(field) && reader.peek() == JsonToken.STRING) {
+                    integrity = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (tarball != null) {
+                ref = new ResolvedRef(tarball, integrity);
+            }
+        }
+        reader.endObject();
+        return ref;
+    }
+
     @Override
     public void close() {
+        if (fetched.get() > 0 || notModified.get() > 0) {
+            log.info("Registry metadata: {} package(s) downloaded, {} reused from the local cache (not modified)",
+                    fetched.get(), notModified.get());
+        }
+        executor.shutdownNow();
         try {
             httpClient.close();
         } catch (Exception ignored) {
@@ -2,6 +2,7 @@ package io.jmix.dependency.cli.npm;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -16,6 +17,10 @@ import java.util.regex.Pattern;
  * {@code vaadinBuildFrontend} (Jmix-specific packages + a fresh, possibly floating resolution) and the
  * {@code vaadin-dev-bundle} jar's lock (the framework's frozen versions, e.g. {@code dompurify 3.4.5}). The
  * union covers both - the Jmix packages and the stable framework versions a project actually runs on.
+ * <p>
+ * {@link #into} does the same in a single pass over {@link PackageLock#stream streamed} entries, so lockfiles
+ * never have to be held in memory: an exact pin seen before the entry that resolves it is reclassified when the
+ * resolved entry arrives (see {@link NpmDownloadPlan#addResolved}).
  */
 public class NpmVariantCollector {
 
@@ -54,6 +59,25 @@ public class NpmVariantCollector {
         return plan;
     }
 
+    /**
+     * A visitor that adds each streamed lockfile entry - its installed version and its exact pins - to {@code plan}.
+     * Feeding it every entry of several lockfiles yields the same plan as {@link #collect(List)}.
+     */
+    public static Consumer<PackageLock.Entry> into(NpmDownloadPlan plan) {
+        return e -> {
+            if (e.name != null && e.version != null) {
+                if (e.resolved != null) {
+                    plan.addResolved(e.name, e.version, new ResolvedRef(e.resolved, e.integrity));
+                } else {
+                    plan.addVariant(e.name, e.version);
+                }
+            }
+            collectExact(plan, e.dependencies);
+            collectExact(plan, e.peerDependencies);
+            collectExact(plan, e.optionalDependencies);
+        };
+    }
+
     private static void collectExact(NpmDownloadPlan plan, Map<String, String> constraints) {
         if (constraints == null) {
             return;
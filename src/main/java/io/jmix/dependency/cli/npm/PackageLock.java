@@ -1,8 +1,7 @@
 package io.jmix.dependency.cli.npm;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -13,6 +12,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Minimal, defensive parser for npm's {@code package-lock.json}.
@@ -21,6 +21,10 @@ import java.util.Map;
  * installed package - regular deps, auto-installed peers and optionals - each with its exact
  * {@code version}, {@code resolved} tarball URL and {@code integrity}. Falls back to the legacy v1
  * {@code dependencies} tree when {@code packages} is absent (peer pins are not available there).
+ * <p>
+ * The parser is streaming ({@link #stream}): a lockfile is read token by token and each entry handed to a
+ * visitor as soon as it is complete, so no JSON tree of the (often multi-megabyte) file is ever built.
+ * {@link #parse} collects the same entries into a list for callers that want them all.
  */
 public class PackageLock {
 
@@ -72,84 +76,197 @@ public class PackageLock {
         return lockfileVersion >= 2;
     }
 
+    /** Parses the whole lockfile into memory. Prefer {@link #stream} when the entries are consumed once. */
     public static PackageLock parse(Path file) {
+        List<Entry> entries = new ArrayList<>();
+        int version = stream(file, entries::add);
+        return new PackageLock(version, entries);
+    }
+
+    /**
+     * Streams the lockfile's entries to {@code visitor} without building a JSON tree or an entry list: each
+     * {@link Entry} is emitted as soon as its object has been read. Entries come in the same order, and with the same
+     * content, as {@link #entries()} of {@link #parse}.
+     *
+     * @return the {@code lockfileVersion} (0 when absent)
+     */
+    public static int stream(Path file, Consumer<Entry> visitor) {
         try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            JsonObject root = JsonParser.parseReader(r).getAsJsonObject();
-            int version = root.has("lockfileVersion") ? root.get("lockfileVersion").getAsInt() : 0;
-
-            List<Entry> entries = new ArrayList<>();
-            if (root.has("packages") && root.get("packages").isJsonObject()) {
-                JsonObject packages = root.getAsJsonObject("packages");
-                for (Map.Entry<String, JsonElement> e : packages.entrySet()) {
-                    String key = e.getKey();
-                    if (key.isEmpty() || !e.getValue().isJsonObject()) {
-                        continue; // "" is the root project itself
+            JsonReader reader = new JsonReader(r);
+            reader.setLenient(true);
+            reader.beginObject();
+            int version = 0;
+            boolean packagesSeen = false;
+            List<Entry> bufferedLegacy = null;
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if ("lockfileVersion".equals(field)) {
+                    version = readInt(reader);
+                } else if ("packages".equals(field) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    packagesSeen = true;
+                    bufferedLegacy = null; // the packages map wins over a legacy tree read before it
+                    readPackages(reader, visitor);
+                } else if ("dependencies".equals(field) && !packagesSeen && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    if (version == 1) {
+                        readLegacy(reader, visitor); // v1 has no packages map - nothing to wait for
+                    } else {
+                        // A packages map may still follow (npm writes it first, but JSON does not guarantee it).
+                        bufferedLegacy = new ArrayList<>();
+                        readLegacy(reader, bufferedLegacy::add);
                     }
-                    JsonObject o = e.getValue().getAsJsonObject();
-                    String name = optString(o, "name");
-                    if (name == null) {
-                        name = nameFromPath(key);
-                    }
-                    entries.add(toEntry(name, o));
+                } else {
+                    reader.skipValue();
                 }
-            } else if (root.has("dependencies") && root.get("dependencies").isJsonObject()) {
-                collectLegacy(root.getAsJsonObject("dependencies"), entries);
             }
-            return new PackageLock(version, entries);
+            reader.endObject();
+            if (!packagesSeen && bufferedLegacy != null) {
+                bufferedLegacy.forEach(visitor);
+            }
+            return version;
         } catch (IOException ex) {
             throw new RuntimeException("Unable to read package-lock.json: " + file, ex);
         }
     }
 
-    private static Entry toEntry(String name, JsonObject o) {
-        return new Entry(
-                name,
-                optString(o, "version"),
-                optString(o, "resolved"),
-                optString(o, "integrity"),
-                optMap(o, "dependencies"),
-                optMap(o, "peerDependencies"),
-                optMap(o, "optionalDependencies"));
+    private static void readPackages(JsonReader reader, Consumer<Entry> visitor) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (key.isEmpty() || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue(); // "" is the root project itself
+                continue;
+            }
+            visitor.accept(readEntry(reader, nameFromPath(key), false, null));
+        }
+        reader.endObject();
     }
 
-    private static void collectLegacy(JsonObject deps, List<Entry> entries) {
-        for (Map.Entry<String, JsonElement> e : deps.entrySet()) {
-            if (!e.getValue().isJsonObject()) {
+    private static void readLegacy(JsonReader reader, Consumer<Entry> visitor) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
                 continue;
             }
-            JsonObject o = e.getValue().getAsJsonObject();
-            entries.add(new Entry(
-                    e.getKey(),
-                    optString(o, "version"),
-                    optString(o, "resolved"),
-                    optString(o, "integrity"),
-                    optMap(o, "requires"),
-                    Map.of(),
-                    Map.of()));
-            if (o.has("dependencies") && o.get("dependencies").isJsonObject()) {
-                collectLegacy(o.getAsJsonObject("dependencies"), entries);
+            // Nested dependencies are emitted after their parent, as the tree-based parser did.
+            List<Entry> nested = new ArrayList<>();
+            visitor.accept(readEntry(reader, name, true, nested));
+            nested.forEach(visitor);
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads one package object. In the {@code packages} map an explicit {@code name} field overrides the name derived
+     * from the path; in the legacy tree {@code requires} holds the dependencies and nested {@code dependencies} are
+     * collected into {@code nested}.
+     */
+    private static Entry readEntry(JsonReader reader, String name, boolean legacy, List<Entry> nested) throws IOException {
+        String version = null;
+        String resolved = null;
+        String integrity = null;
+        Map<String, String> dependencies = Map.of();
+        Map<String, String> peerDependencies = Map.of();
+        Map<String, String> optionalDependencies = Map.of();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case "name" -> {
+                    String explicit = readString(reader);
+                    if (!legacy && explicit != null) {
+                        name = explicit;
+                    }
+                }
+                case "version" -> version = readString(reader);
+                case "resolved" -> resolved = readString(reader);
+                case "integrity" -> integrity = readString(reader);
+                case "requires" -> {
+                    if (legacy) {
+                        dependencies = readMap(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "dependencies" -> {
+                    if (legacy) {
+                        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            readLegacy(reader, nested::add);
+                        } else {
+                            reader.skipValue();
+                        }
+                    } else {
+                        dependencies = readMap(reader);
+                    }
+                }
+                case "peerDependencies" -> {
+                    if (legacy) {
+                        reader.skipValue();
+                    } else {
+                        peerDependencies = readMap(reader);
+                    }
+                }
+                case "optionalDependencies" -> {
+                    if (legacy) {
+                        reader.skipValue();
+                    } else {
+                        optionalDependencies = readMap(reader);
+                    }
+                }
+                default -> reader.skipValue();
             }
         }
+        reader.endObject();
+        return new Entry(name, version, resolved, integrity, dependencies, peerDependencies, optionalDependencies);
     }
 
-    private static String nameFromPath(String key) {
-        int idx = key.lastIndexOf(NODE_MODULES);
-        return idx >= 0 ? key.substring(idx + NODE_MODULES.length()) : key;
+    private static int readInt(JsonReader reader) throws IOException {
+        String value = readString(reader);
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
-    private static String optString(JsonObject o, String field) {
-        return o.has(field) && o.get(field).isJsonPrimitive() ? o.get(field).getAsString() : null;
+    /** The value as a string when it is a primitive, otherwise skipped and {@code null}. */
+    private static String readString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING, NUMBER -> {
+                return reader.nextString();
+            }
+            case BOOLEAN -> {
+                return String.valueOf(reader.nextBoolean());
+            }
+            default -> {
+                reader.skipValue();
+                return null;
+            }
+        }
     }
 
-    private static Map<String, String> optMap(JsonObject o, String field) {
+    /** An object of primitive values; an empty map (not allocated) when the field is not an object. */
+    private static Map<String, String> readMap(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return Map.of();
+        }
         Map<String, String> result = new LinkedHashMap<>();
-        if (o.has(field) && o.get(field).isJsonObject()) {
-            for (Map.Entry<String, JsonElement> e : o.getAsJsonObject(field).entrySet()) {
-                if (e.getValue().isJsonPrimitive()) {
-                    result.put(e.getKey(), e.getValue().getAsString());
-                }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            String value = readString(reader);
+            if (value != null) {
+                result.put(key, value);
             }
         }
+        reader.endObject();
         return result;
     }
+
+    private static String nameFromPath(String key) {
+        int idx = key.lastIndexOf(NODE_MODULES);
+        return idx >= 0 ? key.substring(idx + NODE_MODULES.length()) : key;
+    }
 }
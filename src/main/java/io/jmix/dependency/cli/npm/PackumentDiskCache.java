@@ -0,0 +1,92 @@
+package io.jmix.dependency.cli.npm;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Disk-backed registry metadata cache used by {@link NpmRegistryClient} across {@code export-npm} runs.
+ * <p>
+ * One JSON file per package holds the reduced packument (the {@link ResolvedRef} of each version) together with the
+ * {@code ETag} / {@code Last-Modified} validators the registry sent. The next run revalidates the entry with a
+ * conditional request and, on {@code 304 Not Modified}, reuses it without downloading the metadata again. Entries
+ * are tagged with the registry URL they came from, so switching {@code --npm-registry} never reuses foreign tarball
+ * URLs.
+ */
+public class PackumentDiskCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PackumentDiskCache.class);
+
+    private static final Gson GSON = new Gson();
+
+    public record Entry(String registry, String etag, String lastModified, Map<String, ResolvedRef> versions) {
+    }
+
+    private final Path directory;
+
+    public PackumentDiskCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** The cached entry of the package for this registry, or {@code null} when absent or unreadable. */
+    public Entry read(String registry, String name) {
+        Path file = fileOf(name);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Entry entry = GSON.fromJson(reader, Entry.class);
+            if (entry == null || entry.versions() == null || !registry.equals(entry.registry())) {
+                return null;
+            }
+            return entry;
+        } catch (IOException | JsonParseException e) {
+            log.debug("Ignoring unreadable registry cache entry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Stores the entry atomically (write to a temporary file, then move), so concurrent readers never see half of it. */
+    public void write(String name, Entry entry) {
+        Path file = fileOf(name);
+        Path partFile = null;
+        try {
+            Files.createDirectories(directory);
+            partFile = Files.createTempFile(directory, file.getFileName().toString(), ".part");
+            try (Writer writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8)) {
+                GSON.toJson(entry, writer);
+            }
+            try {
+                Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write registry cache entry for {}: {}", name, e.getMessage());
+        } finally {
+            if (partFile != null) {
+                try {
+                    Files.deleteIfExists(partFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /** {@code @scope/name} becomes {@code %40scope%2Fname.json} - one flat, filesystem-safe file per package. */
+    private Path fileOf(String name) {
+        return directory.resolve(URLEncoder.encode(name, StandardCharsets.UTF_8) + ".json");
+    }
+}
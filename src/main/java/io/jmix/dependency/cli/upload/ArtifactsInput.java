@@ -0,0 +1,72 @@
+package io.jmix.dependency.cli.upload;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * What the upload commands read from: an export directory, or a zip of one - {@code export --archive},
+ * {@code export-npm --archive} or a {@code diff-export --archive} delta bundle, as carried to an air-gapped site.
+ * A zip is unpacked into a temporary directory that {@link #close()} deletes.
+ */
+public class ArtifactsInput implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ArtifactsInput.class);
+
+    private final Path dir;
+    private final boolean temporary;
+
+    private ArtifactsInput(Path dir, boolean temporary) {
+        this.dir = dir;
+        this.temporary = temporary;
+    }
+
+    public static ArtifactsInput open(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return new ArtifactsInput(path, false);
+        }
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("deptool-upload-");
+            log.info("Unpacking {} into {}", path, dir);
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path))) {
+                for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                    Path target = dir.resolve(entry.getName()).normalize();
+                    if (!target.startsWith(dir)) {
+                        throw new IOException("Archive entry outside of the archive root: " + entry.getName());
+                    }
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(target);
+                    } else {
+                        Files.createDirectories(target.getParent());
+                        Files.copy(zip, target);
+                    }
+                }
+            }
+            return new ArtifactsInput(dir, true);
+        } catch (IOException e) {
+            if (dir != null) {
+                FileUtils.deleteQuietly(dir.toFile());
+            }
+            throw new RuntimeException("Unable to unpack the artifacts archive " + path, e);
+        }
+    }
+
+    /** The directory to walk. */
+    public Path dir() {
+        return dir;
+    }
+
+    @Override
+    public void close() {
+        if (temporary) {
+            FileUtils.deleteQuietly(dir.toFile());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.jmix.dependency.cli.upload;
+
+/**
+ * Tuning of the HTTP connection pool {@link NexusRepositoryManager} keeps open to Nexus for the whole command.
+ *
+ * @param maxConnectionsPerRoute pooled connections to the Nexus host; should be at least the number of upload workers
+ * @param keepAliveSeconds       how long an idle pooled connection is kept for reuse (when the server does not say)
+ * @param connectTimeoutSeconds  TCP/TLS connect timeout
+ * @param responseTimeoutSeconds how long to wait for a response; generous, since a large multipart upload is
+ *                               only answered once Nexus has stored every asset
+ */
+public record NexusConnectionSettings(int maxConnectionsPerRoute,
+                                      int keepAliveSeconds,
+                                      int connectTimeoutSeconds,
+                                      int responseTimeoutSeconds) {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 60;
+    public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+    public static final int DEFAULT_RESPONSE_TIMEOUT_SECONDS = 600;
+
+    public static NexusConnectionSettings defaults() {
+        return new NexusConnectionSettings(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_KEEP_ALIVE_SECONDS,
+                DEFAULT_CONNECT_TIMEOUT_SECONDS, DEFAULT_RESPONSE_TIMEOUT_SECONDS);
+    }
+}
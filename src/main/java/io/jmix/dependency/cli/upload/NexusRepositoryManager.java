@@ -2,23 +2,52 @@ package io.jmix.dependency.cli.upload;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.jmix.dependency.cli.export.Checksums;
 import io.jmix.dependency.cli.upload.model.Artifact;
 import io.jmix.dependency.cli.upload.model.ArtifactNpm;
 import io.jmix.dependency.cli.upload.model.ArtifactsBundle;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.utils.Base64;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.message.StatusLine;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class NexusRepositoryManager {
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Talks to the Nexus REST API and repository endpoints.
+ * <p>
+ * A single pooled, keep-alive HTTP client is shared by every call (and every upload worker), so each artifact
+ * reuses an open connection instead of paying a fresh TCP connect and TLS handshake. The pool lives as long as
+ * the manager: create one per command and {@link #close()} it when the command finishes.
+ */
+public class NexusRepositoryManager implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(NexusRepositoryManager.class);
 
@@ -30,27 +59,174 @@ public class NexusRepositoryManager {
 
     private final String password;
 
+    private final CloseableHttpClient httpClient;
+
+    /** Cleared once the server answers {@code HEAD} with 405/501; probes then use a ranged {@code GET}. */
+    private volatile boolean headSupported = true;
+
     public NexusRepositoryManager(String nexusUrl, String repositoryName, String username, String password) {
+        this(nexusUrl, repositoryName, username, password, NexusConnectionSettings.defaults());
+    }
+
+    public NexusRepositoryManager(String nexusUrl, String repositoryName, String username, String password,
+                                  NexusConnectionSettings settings) {
         this.nexusUrl = nexusUrl;
         this.repositoryName = repositoryName;
         this.username = username;
         this.password = password;
+        this.httpClient = createHttpClient(settings);
+    }
+
+    private static CloseableHttpClient createHttpClient(NexusConnectionSettings settings) {
+        TimeValue keepAlive = TimeValue.ofSeconds(settings.keepAliveSeconds());
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofSeconds(settings.connectTimeoutSeconds()))
+                .setSocketTimeout(Timeout.ofSeconds(settings.responseTimeoutSeconds()))
+                .build();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionKeepAlive(keepAlive)
+                .setResponseTimeout(Timeout.ofSeconds(settings.responseTimeoutSeconds()))
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(settings.maxConnectionsPerRoute())
+                        .setMaxConnTotal(settings.maxConnectionsPerRoute())
+                        .setDefaultConnectionConfig(connectionConfig)
+                        .build())
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(keepAlive)
+                .build();
     }
 
     /**
-     * Checks whether an artifact is uploaded to Nexus repository
+     * Checks whether an artifact is uploaded to Nexus repository.
+     * <p>
+     * Sends a {@code HEAD}, so only the status line and headers travel - not the artifact itself, which may be a
+     * multi-megabyte jar. A server (or proxy in front of it) that rejects {@code HEAD} is detected once and from then
+     * on probed with a {@code GET} limited to the first byte ({@code Range: bytes=0-0}); the response body is never
+     * read into memory in either case.
      */
     public boolean isArtifactUploaded(Artifact artifact) {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpGet httpGet = new HttpGet(getArtifactUrl(artifact));
-            return httpClient.execute(httpGet, response -> {
-                return response.getCode() == 200;
-            });
+        String artifactUrl = getArtifactUrl(artifact);
+        try {
+            if (headSupported) {
+                int code = httpClient.execute(new HttpHead(artifactUrl), HttpResponse::getCode);
+                if (code != HttpStatus.SC_METHOD_NOT_ALLOWED && code != HttpStatus.SC_NOT_IMPLEMENTED) {
+                    return code == HttpStatus.SC_OK;
+                }
+                logger.info("Nexus rejected HEAD (HTTP {}), falling back to ranged GET for existence checks", code);
+                headSupported = false;
+            }
+            HttpGet httpGet = new HttpGet(artifactUrl);
+            httpGet.addHeader("Range", "bytes=0-0");
+            return httpClient.execute(httpGet, response ->
+                    response.getCode() == HttpStatus.SC_OK || response.getCode() == HttpStatus.SC_PARTIAL_CONTENT);
         } catch (Exception e) {
             throw new RuntimeException("Error on checking that artifact is uploaded", e);
         }
     }
 
+    /**
+     * Lists the Maven components already present in the repository, in one pass over the paginated
+     * <a href="https://help.sonatype.com/repomanager3/integrations/rest-and-integration-api/components-api">Nexus
+     * Components API</a> (following continuation tokens), instead of probing every artifact separately.
+     *
+     * @return {@code group:artifact:version} of every component that has a POM asset - the same criterion as
+     * {@link #isArtifactUploaded} applied to a bundle's POM
+     */
+    public Set<String> listUploadedMavenComponents() {
+        Set<String> result = new HashSet<>();
+        int pages = forEachComponent(component -> {
+            if (hasAssetWithSuffix(component, ".pom")) {
+                result.add(optString(component, "group") + ":" + optString(component, "name") + ":"
+                        + optString(component, "version"));
+            }
+        });
+        logger.info("Repository {} holds {} Maven component(s) with a POM (listed in {} page(s))",
+                repositoryName, result.size(), pages);
+        return result;
+    }
+
+    /**
+     * Lists the NPM packages already present in the repository via the paginated Components API.
+     *
+     * @return {@code <moduleName>@<version>} keys, module name without scope - matching what
+     * {@link #isNpmArtifactUploaded} searches for
+     */
+    public Set<String> listUploadedNpmPackages() {
+        Set<String> result = new HashSet<>();
+        int pages = forEachComponent(component ->
+                result.add(optString(component, "name") + "@" + optString(component, "version")));
+        logger.info("Repository {} holds {} NPM package version(s) (listed in {} page(s))",
+                repositoryName, result.size(), pages);
+        return result;
+    }
+
+    /**
+     * Feeds every component of the repository to the consumer, page by page.
+     *
+     * @return the number of pages read
+     */
+    private int forEachComponent(Consumer<JsonObject> consumer) {
+        String continuationToken = null;
+        int pages = 0;
+        try {
+            do {
+                String url = nexusUrl + "/service/rest/v1/components?repository="
+                        + URLEncoder.encode(repositoryName, StandardCharsets.UTF_8)
+                        + (continuationToken != null
+                        ? "&continuationToken=" + URLEncoder.encode(continuationToken, StandardCharsets.UTF_8)
+                        : "");
+                HttpGet httpGet = new HttpGet(url);
+                httpGet.addHeader("Authorization", basicAuthorization());
+                JsonObject page = httpClient.execute(httpGet, response -> {
+                    if (response.getCode() != 200) {
+                        EntityUtils.consume(response.getEntity());
+                        throw new IOException("Nexus responded with HTTP " + response.getCode() + " to " + url);
+                    }
+                    return new Gson().fromJson(EntityUtils.toString(response.getEntity()), JsonObject.class);
+                });
+                pages++;
+                if (page.has("items") && page.get("items").isJsonArray()) {
+                    for (JsonElement item : page.getAsJsonArray("items")) {
+                        if (item.isJsonObject()) {
+                            consumer.accept(item.getAsJsonObject());
+                        }
+                    }
+                }
+                continuationToken = optString(page, "continuationToken");
+            } while (continuationToken != null);
+        } catch (Exception e) {
+            throw new RuntimeException("Error on listing components of repository " + repositoryName, e);
+        }
+        return pages;
+    }
+
+    private static boolean hasAssetWithSuffix(JsonObject component, String suffix) {
+        if (!component.has("assets") || !component.get("assets").isJsonArray()) {
+            return false;
+        }
+        for (JsonElement asset : component.getAsJsonArray("assets")) {
+            if (asset.isJsonObject()) {
+                String path = optString(asset.getAsJsonObject(), "path");
+                if (path != null && path.endsWith(suffix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String optString(JsonObject o, String field) {
+        return o.has(field) && o.get(field).isJsonPrimitive() ? o.get(field).getAsString() : null;
+    }
+
+    private String basicAuthorization() {
+        String credentials = username + ":" + password;
+        byte[] encodedCredentialsBytes = Base64.encodeBase64(credentials.getBytes());
+        return "Basic " + new String(encodedCredentialsBytes);
+    }
+
     private String getArtifactUrl(Artifact artifact) {
         return nexusUrl + "/repository/" + repositoryName + "/" +
                 artifact.getGroupId().replace(".", "/") + "/" +
@@ -75,8 +251,7 @@ public class NexusRepositoryManager {
      * @param artifactsBundle
      */
     public void uploadArtifacts(ArtifactsBundle artifactsBundle) {
-        //todo shared http client?
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+        try {
             MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create();
             multipartEntityBuilder.addTextBody("maven2.groupId", artifactsBundle.getGroupId())
                     .addTextBody("maven2.artifactId", artifactsBundle.getArtifactId())
@@ -95,9 +270,7 @@ public class NexusRepositoryManager {
 
             String uploadUrl = nexusUrl + "/service/rest/v1/components?repository=" + repositoryName;
             HttpPost httpPost = new HttpPost(uploadUrl);
-            String credentials = username + ":" + password;
-            byte[] encodedCredentialsBytes = Base64.encodeBase64(credentials.getBytes());
-            httpPost.addHeader("Authorization", "Basic " + new String(encodedCredentialsBytes));
+            httpPost.addHeader("Authorization", basicAuthorization());
             httpPost.setEntity(httpEntity);
 
             logger.info("Uploading artifacts: {}", artifactsBundle);
@@ -111,19 +284,74 @@ public class NexusRepositoryManager {
                         logger.info("Response body: {}", responseText);
                     }
                     EntityUtils.consume(responseEntity);
+                    // Surface the failure so the caller can retry the bundle or report it as failed.
+                    throw new IOException("Nexus responded with HTTP " + response.getCode());
                 }
                 return null;
             });
         } catch (Exception e) {
-            throw new RuntimeException("Error on uploading artifact", e);
+            throw new RuntimeException("Error on uploading artifact " + artifactsBundle.getMavenCoordinates(), e);
         }
     }
 
+    /**
+     * Puts the checksum sidecars {@code export --checksums} wrote next to the bundle's files ({@code <file>.sha1},
+     * {@code .sha256}, {@code .sha512}) at the matching repository paths, after the bundle itself is stored.
+     * <p>
+     * This does not spare Nexus any work: Nexus 3 computes its own hashes of every asset on ingest and serves those;
+     * the PUTs only add the export's checksum files next to them, at one extra request per sidecar. Each sidecar is
+     * tried up to {@code attempts} times on its own. A sidecar that still fails is logged and skipped rather than
+     * thrown, so it never makes the caller upload the (already stored) bundle again - a release repository that
+     * refuses redeploys would reject that.
+     *
+     * @return the number of sidecars uploaded
+     */
+    public int uploadChecksums(ArtifactsBundle artifactsBundle, int attempts) {
+        int uploaded = 0;
+        for (Artifact artifact : artifactsBundle.getArtifacts()) {
+            for (String extension : Checksums.SIDECAR_EXTENSIONS) {
+                File sidecar = new File(artifact.getFile().getPath() + "." + extension);
+                if (!sidecar.isFile()) {
+                    continue;
+                }
+                String url = nexusUrl + "/repository/" + repositoryName + "/" +
+                        artifact.getGroupId().replace(".", "/") + "/" + artifact.getArtifactId() + "/" +
+                        artifact.getVersion() + "/" + sidecar.getName();
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        putChecksum(url, sidecar);
+                        uploaded++;
+                        break;
+                    } catch (Exception e) {
+                        if (attempt >= Math.max(1, attempts)) {
+                            logger.warn("Checksum {} not uploaded after {} attempt(s): {}", url, attempt, e.getMessage());
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return uploaded;
+    }
+
+    private void putChecksum(String url, File sidecar) throws IOException {
+        HttpPut httpPut = new HttpPut(url);
+        httpPut.addHeader("Authorization", basicAuthorization());
+        httpPut.setEntity(new StringEntity(Files.readString(sidecar.toPath()).trim(), ContentType.TEXT_PLAIN));
+        httpClient.execute(httpPut, response -> {
+            EntityUtils.consume(response.getEntity());
+            if (response.getCode() / 100 != 2) {
+                throw new IOException("Nexus responded with HTTP " + response.getCode());
+            }
+            return null;
+        });
+    }
+
     /**
      * Checks whether an NPM artifact is uploaded to Nexus repository
      */
     public boolean isNpmArtifactUploaded(ArtifactNpm artifact) {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+        try {
             String artifactUrl = this.nexusUrl + "/service/rest/v1/search/assets?"
                     + "repository=" + repositoryName
                     + "&name=" + artifact.getModuleName()
@@ -163,7 +391,7 @@ public class NexusRepositoryManager {
      * @param artifact artifact
      */
     public void uploadNpmArtifacts(ArtifactNpm artifact) {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+        try {
             MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create();
             multipartEntityBuilder.addBinaryBody("npm.asset", artifact.getFile());
 
@@ -171,9 +399,7 @@ public class NexusRepositoryManager {
 
             String uploadUrl = nexusUrl + "/service/rest/v1/components?repository=" + repositoryName;
             HttpPost httpPost = new HttpPost(uploadUrl);
-            String credentials = username + ":" + password;
-            byte[] encodedCredentialsBytes = Base64.encodeBase64(credentials.getBytes());
-            httpPost.addHeader("Authorization", "Basic " + new String(encodedCredentialsBytes));
+            httpPost.addHeader("Authorization", basicAuthorization());
             httpPost.setEntity(httpEntity);
 
             logger.info("Uploading artifact: {}", artifact);
@@ -194,4 +420,16 @@ public class NexusRepositoryManager {
             throw new RuntimeException("Error on uploading artifact", e);
         }
     }
+
+    /**
+     * Closes the shared connection pool.
+     */
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Error on closing Nexus HTTP client: {}", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package io.jmix.dependency.cli.upload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs upload units of work (typically "check whether the bundle is present, upload it if not") on a fixed
+ * pool of workers.
+ * <p>
+ * The number of units in flight (running + queued) is bounded: {@link #submit} blocks once the bound is
+ * reached, so walking a huge export tree never piles thousands of pending bundles into memory ahead of the
+ * workers. A unit that throws is retried with exponential backoff; when all attempts fail it is recorded in
+ * {@link Summary#failed} and the remaining units carry on.
+ */
+public class ParallelUploader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelUploader.class);
+
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+
+    /**
+     * A single upload unit. Returns {@code true} when something was uploaded, {@code false} when the unit was
+     * skipped because the repository already has it.
+     */
+    @FunctionalInterface
+    public interface Unit {
+        boolean upload() throws Exception;
+    }
+
+    public static class Summary {
+        public final AtomicInteger uploaded = new AtomicInteger();
+        public final AtomicInteger skipped = new AtomicInteger();
+        public final AtomicLong uploadedBytes = new AtomicLong();
+        public final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        private final long startNanos = System.nanoTime();
+        private long elapsedNanos;
+
+        public double elapsedSeconds() {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+
+        /** Uploaded (not skipped) units per second. */
+        public double unitsPerSecond() {
+            double seconds = elapsedSeconds();
+            return seconds > 0 ? uploaded.get() / seconds : 0;
+        }
+
+        /** Uploaded megabytes (MiB) per second. */
+        public double megabytesPerSecond() {
+            double seconds = elapsedSeconds();
+            return seconds > 0 ? uploadedBytes.get() / (1024.0 * 1024.0) / seconds : 0;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxAttempts;
+    private final Summary summary = new Summary();
+
+    /**
+     * @param workers       number of concurrent upload workers
+     * @param queueCapacity how many units may wait for a free worker before {@link #submit} blocks
+     * @param maxAttempts   attempts per unit (1 = no retry)
+     */
+    public ParallelUploader(int workers, int queueCapacity, int maxAttempts) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of upload workers must be positive: " + workers);
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "upload-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(workers + Math.max(0, queueCapacity));
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Schedules a unit, blocking while the in-flight bound is reached.
+     *
+     * @param name  what is uploaded, for logging and the failure list
+     * @param bytes payload size, counted towards throughput when the unit actually uploads
+     */
+    public void submit(String name, long bytes, Unit unit) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scheduling upload of " + name, e);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runWithRetry(name, bytes, unit);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void runWithRetry(String name, long bytes, Unit unit) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (unit.upload()) {
+                    summary.uploaded.incrementAndGet();
+                    summary.uploadedBytes.addAndGet(bytes);
+                } else {
+                    summary.skipped.incrementAndGet();
+                }
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Failed to upload {} after {} attempt(s)", name, attempt, e);
+                    summary.failed.add(name);
+                    return;
+                }
+                log.warn("Upload of {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        name, attempt, maxAttempts, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    summary.failed.add(name);
+                    return;
+                }
+                backoff *= 2;
+            }
+        }
+    }
+
+    /** Waits for every submitted unit to finish and returns the totals. */
+    public Summary awaitCompletion() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Uploading... {} uploaded, {} already present, {} failed so far",
+                        summary.uploaded.get(), summary.skipped.get(), summary.failed.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for uploads to finish", e);
+        }
+        summary.elapsedNanos = System.nanoTime() - summary.startNanos;
+        return summary;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,72 @@
+package io.jmix.deptool.test;
+
+import io.jmix.dependency.cli.export.BlobStore;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void materialize_sharesIdenticalContentAcrossReleases() throws IOException {
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        Path source = Files.writeString(tempDir.resolve("guava-33.0.0.jar"), "guava");
+        Path release1 = tempDir.resolve("release-1/guava-33.0.0.jar");
+        Path release2 = tempDir.resolve("release-2/guava-33.0.0.jar");
+
+        String sha256 = store.materialize(source, release1);
+        store.materialize(source, release2);
+
+        assertEquals(64, sha256.length());
+        assertTrue(Files.isSameFile(release1, release2));
+        assertTrue(Files.isSameFile(release1, store.blobPath(sha256)));
+        assertEquals("guava", Files.readString(release2));
+    }
+
+    @Test
+    void materialize_failsInsteadOfCopying_andDropsTheBlobItAddedForTheLink() throws IOException {
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        Path source = Files.writeString(tempDir.resolve("guava-33.0.0.jar"), "guava");
+        // A non-empty directory where the link should go: the link cannot be made.
+        Path target = tempDir.resolve("release-1/guava-33.0.0.jar");
+        Files.createDirectories(target);
+        Files.writeString(target.resolve("in-the-way"), "x");
+
+        assertThrows(IOException.class, () -> store.materialize(source, target));
+
+        BlobStore.GcResult result = store.collectGarbage(true);
+        assertEquals(0, result.removed + result.kept);
+    }
+
+    @Test
+    void collectGarbage_removesOnlyUnreferencedBlobs() throws IOException {
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        Path shared = Files.writeString(tempDir.resolve("a.jar"), "shared");
+        Path old = Files.writeString(tempDir.resolve("b.jar"), "only in release 1");
+        store.materialize(shared, tempDir.resolve("release-1/a.jar"));
+        String oldSha256 = store.materialize(old, tempDir.resolve("release-1/b.jar"));
+        String sharedSha256 = store.materialize(shared, tempDir.resolve("release-2/a.jar"));
+
+        FileUtils.deleteDirectory(tempDir.resolve("release-1").toFile());
+        BlobStore.GcResult dryRun = store.collectGarbage(true);
+        BlobStore.GcResult result = store.collectGarbage(false);
+
+        assertEquals(1, dryRun.removed);
+        assertEquals(1, result.removed);
+        assertEquals(1, result.kept);
+        assertFalse(Files.exists(store.blobPath(oldSha256)));
+        assertTrue(Files.exists(store.blobPath(sharedSha256)));
+    }
+}
@@ -0,0 +1,125 @@
+package io.jmix.deptool.test;
+
+import io.jmix.dependency.cli.export.ArchiveWriter;
+import io.jmix.dependency.cli.export.ExportDiff;
+import io.jmix.dependency.cli.export.ExportRecords;
+import io.jmix.dependency.cli.export.GradleCacheExporter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static io.jmix.deptool.test.GradleCacheFixture.cacheFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportDiffTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compare_manifestsOfTwoReleases_materializesOnlyTheAddedFiles() throws IOException {
+        Path cache = tempDir.resolve("files-2.1");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.7.0", "aa11", "jmix-core-2.7.0.jar", "2.7");
+        cacheFile(cache, "com.google.guava", "guava", "33.0.0", "bb22", "guava-33.0.0.jar", "guava");
+        new GradleCacheExporter(cache, tempDir.resolve("release-2.7"), false).export();
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "cc33", "jmix-core-2.8.0.jar", "2.8");
+        new GradleCacheExporter(cache, tempDir.resolve("release-2.8"), false).export();
+
+        ExportDiff.Result diff = ExportDiff.compare(ExportDiff.listing(tempDir.resolve("release-2.7")),
+                ExportDiff.listing(tempDir.resolve("release-2.8")));
+        Path delta = tempDir.resolve("delta");
+        int copied = ExportDiff.materialize(diff.delta(), tempDir.resolve("release-2.8"), delta, false);
+
+        assertEquals(List.of("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar"), diff.added());
+        assertEquals(1, copied);
+        assertTrue(Files.exists(delta.resolve("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar")));
+        assertFalse(Files.exists(delta.resolve("com/google/guava")));
+    }
+
+    @Test
+    void compare_reportAgainstManifest_comparesVersionDirectories() throws IOException {
+        Path oldReport = Files.writeString(tempDir.resolve("old.txt"), """
+                io.jmix.core:jmix-core:2.7.0
+                # Checksum mismatches (1)
+                io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar
+                """);
+        Path cache = tempDir.resolve("files-2.1");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.7.0", "aa11", "jmix-core-2.7.0.pom", "2.7");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0.pom", "2.8");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "cc33", "jmix-core-2.8.0.jar", "2.8");
+        new GradleCacheExporter(cache, tempDir.resolve("export"), false).export();
+
+        ExportDiff.Result diff = ExportDiff.compare(ExportDiff.listing(oldReport), ExportDiff.listing(tempDir.resolve("export")));
+
+        assertEquals(List.of("io/jmix/core/jmix-core/2.8.0/"), diff.added());
+        assertEquals(2, ExportDiff.materialize(diff.delta(), tempDir.resolve("export"), tempDir.resolve("delta"), false));
+    }
+
+    @Test
+    void compare_manifestAgainstRecords_comparesHashesOfTheSameAlgorithmOnly() throws IOException {
+        Path cache = tempDir.resolve("files-2.1");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "2.8");
+        cacheFile(cache, "io.jmix.data", "jmix-data", "2.8.0", "bb22", "jmix-data-2.8.0.jar", "data");
+        // Exported without hashing: the manifest has SHA-1s only.
+        new GradleCacheExporter(cache, tempDir.resolve("plain"), false).export();
+        // Exported with a records file: the manifest has SHA-256s too.
+        try (ExportRecords records = new ExportRecords(tempDir.resolve("hashed.jsonl"))) {
+            new GradleCacheExporter(cache, tempDir.resolve("hashed"), false).recordTo(records).export();
+        }
+        Path rebuilt = tempDir.resolve("rebuilt-cache");
+        cacheFile(rebuilt, "io.jmix.core", "jmix-core", "2.8.0", "cc33", "jmix-core-2.8.0.jar", "2.8 rebuilt");
+        cacheFile(rebuilt, "io.jmix.data", "jmix-data", "2.8.0", "bb22", "jmix-data-2.8.0.jar", "data");
+        Path newRecords = tempDir.resolve("new.jsonl");
+        try (ExportRecords records = new ExportRecords(newRecords)) {
+            new GradleCacheExporter(rebuilt, tempDir.resolve("new"), false).recordTo(records).export();
+        }
+
+        ExportDiff.Result byName = ExportDiff.compare(ExportDiff.listing(tempDir.resolve("plain")),
+                ExportDiff.listing(newRecords));
+        ExportDiff.Result byHash = ExportDiff.compare(ExportDiff.listing(tempDir.resolve("hashed")),
+                ExportDiff.listing(newRecords));
+
+        assertEquals(List.of(), byName.delta());
+        assertEquals(List.of("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar"), byHash.changed());
+        assertEquals(List.of(), byHash.added());
+    }
+
+    @Test
+    void listing_ofAnExportArchive_listsItsArtifacts() throws IOException {
+        Path cache = tempDir.resolve("files-2.1");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.7.0", "aa11", "jmix-core-2.7.0.jar", "2.7");
+        new GradleCacheExporter(cache, tempDir.resolve("release-2.7"), false).export();
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0.jar", "2.8");
+        Path zip = tempDir.resolve("release-2.8.zip");
+        try (ArchiveWriter archive = new ArchiveWriter(zip)) {
+            new GradleCacheExporter(cache, tempDir.resolve("unused"), false).archiveTo(archive).writeChecksums(true).export();
+            archive.finish();
+        }
+
+        ExportDiff.Result diff = ExportDiff.compare(ExportDiff.listing(tempDir.resolve("release-2.7")), ExportDiff.listing(zip));
+
+        assertEquals(List.of("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar"), diff.added());
+        assertEquals(List.of(), diff.removed());
+    }
+
+    @Test
+    void materialize_failsOnEntriesTheExportDirectoryLacks_unlessAllowed() throws IOException {
+        Path export = tempDir.resolve("export");
+        Files.createDirectories(export.resolve("io/jmix/core/jmix-core/2.8.0"));
+        Files.writeString(export.resolve("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar"), "2.8");
+        List<String> delta = List.of("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar", "io/jmix/data/jmix-data/2.8.0/");
+
+        assertThrows(RuntimeException.class, () -> ExportDiff.materialize(delta, export, tempDir.resolve("strict"), false));
+        assertFalse(Files.exists(tempDir.resolve("strict")));
+
+        assertEquals(1, ExportDiff.materialize(delta, export, tempDir.resolve("lenient"), true));
+        assertTrue(Files.exists(tempDir.resolve("lenient/io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar")));
+    }
+}
@@ -0,0 +1,230 @@
+package io.jmix.deptool.test;
+
+import io.jmix.dependency.cli.export.ArchiveWriter;
+import io.jmix.dependency.cli.export.ExportManifest;
+import io.jmix.dependency.cli.export.ExportRecords;
+import io.jmix.dependency.cli.export.GradleCacheExporter;
+import io.jmix.dependency.cli.export.LinkMode;
+import io.jmix.dependency.cli.export.PomClosure;
+import io.jmix.dependency.cli.export.ResolutionManifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static io.jmix.deptool.test.GradleCacheFixture.cacheFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradleCacheExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void export_writesManifestAndIncrementalRunCopiesOnlyChanges() throws IOException {
+        Path cache = tempDir.resolve("files-2.1");
+        Path target = tempDir.resolve("export");
+        Path jar = cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "jar");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0.pom", "pom");
+        cacheFile(cache, "io.jmix.bom", "jmix-bom", "2.8.0", "cc33", "jmix-bom-2.8.0.pom", "bom");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "dd44", "jmix-core-2.8.0-sources.txt", "ignored");
+
+        GradleCacheExporter.Report full = new GradleCacheExporter(cache, target, false).export();
+
+        assertEquals(3, full.copied.get());
+        assertEquals(Set.of("io.jmix.core:jmix-core:2.8.0", "io.jmix.bom:jmix-bom:2.8.0"), full.components);
+        ExportManifest manifest = ExportManifest.load(target);
+        assertEquals(3, manifest.size());
+        ExportManifest.Entry entry = manifest.get("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar");
+        assertNotNull(entry);
+        assertEquals("aa11", entry.sha1());
+        assertEquals(3, entry.size());
+
+        Files.writeString(jar, "jar-2");
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(entry.lastModified() + 10_000));
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.1", "ee55", "jmix-core-2.8.1.pom", "pom");
+
+        GradleCacheExporter.Report incremental = new GradleCacheExporter(cache, target, true).export();
+
+        assertEquals(1, incremental.copied.get());
+        assertEquals(1, incremental.updated.get());
+        assertEquals(2, incremental.unchanged.get());
+        assertEquals("jar-2", Files.readString(target.resolve("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar")));
+        assertEquals(4, ExportManifest.load(target).size());
+    }
+
+    @Test
+    void export_hardLinksFilesOnTheSameFilesystem() throws IOException {
+        Path cache = tempDir.resolve("files-2.1");
+        Path target = tempDir.resolve("export");
+        Path pom = cacheFile(cache, "io.jmix.bom", "jmix-bom", "2.8.0", "cc33", "jmix-bom-2.8.0.pom", "bom");
+
+        GradleCacheExporter.Report report = new GradleCacheExporter(cache, target, false, LinkMode.HARDLINK, 2).export();
+
+        assertEquals(1, report.copied.get());
+        assertTrue(Files.isSameFile(pom, target.resolve("io/jmix/bom/jmix-bom/2.8.0/jmix-bom-2.8.0.pom")));
+    }
+
+    @Test
+    void export_writesArchiveWithStoredJars() throws IOException {
+        Path cache = tempDir.resolve("files-2.1");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "jar");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0.pom", "pom");
+        Path zip = tempDir.resolve("out/export.zip");
+
+        try (ArchiveWriter archive = new ArchiveWriter(zip)) {
+            new GradleCacheExporter(cache, tempDir.resolve("unused"), false).archiveTo(archive).export();
+            archive.finish();
+        }
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            ZipEntry jar = zipFile.getEntry("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar");
+            assertEquals(ZipEntry.STORED, jar.getMethod());
+            assertEquals("jar", new String(zipFile.getInputStream(jar).readAllBytes()));
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.pom").getMethod());
+            assertEquals(2, zipFile.size());
+        }
+        assertFalse(Files.exists(tempDir.resolve("unused")));
+    }
+
+    @Test
+    void export_writesChecksumSidecars() throws Exception {
+        Path cache = tempDir.resolve("files-2.1");
+        Path target = tempDir.resolve("export");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "jar");
+
+        new GradleCacheExporter(cache, target, false).writeChecksums(true).export();
+
+        Path jar = target.resolve("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.jar");
+        assertEquals(hex("SHA-1", "jar"), Files.readString(jar.resolveSibling("jmix-core-2.8.0.jar.sha1")));
+        assertEquals(hex("SHA-256", "jar"), Files.readString(jar.resolveSibling("jmix-core-2.8.0.jar.sha256")));
+        assertEquals(hex("SHA-512", "jar"), Files.readString(jar.resolveSibling("jmix-core-2.8.0.jar.sha512")));
+    }
+
+    @Test
+    void export_verifyReportsFilesNotMatchingTheirCacheSha1() throws Exception {
+        Path cache = tempDir.resolve("files-2.1");
+        // Gradle names the directory after the SHA-1 as a number, i.e. without leading zeros.
+        String jarSha1 = new BigInteger(hex("SHA-1", "jar"), 16).toString(16);
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", jarSha1, "jmix-core-2.8.0.jar", "jar");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0.pom", "corrupted");
+
+        GradleCacheExporter.Report report = new GradleCacheExporter(cache, tempDir.resolve("export"), false)
+                .verify(true).export();
+
+        assertEquals(List.of("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.pom"), List.copyOf(report.checksumMismatches));
+        assertFalse(Files.exists(tempDir.resolve("export/io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0.pom.sha1")));
+    }
+
+    @Test
+    void export_onlyCopiesTheResolvedClosureWithParentAndBomPoms() throws Exception {
+        Path cache = tempDir.resolve("files-2.1");
+        Path target = tempDir.resolve("export");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "jar");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0.pom", """
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <parent><groupId>io.jmix</groupId><artifactId>jmix-parent</artifactId><version>2.8.0</version></parent>
+                </project>""");
+        cacheFile(cache, "io.jmix", "jmix-parent", "2.8.0", "cc33", "jmix-parent-2.8.0.pom", """
+                <project>
+                  <properties><spring.version>6.2.1</spring.version></properties>
+                  <dependencyManagement><dependencies><dependency>
+                    <groupId>org.springframework</groupId><artifactId>spring-bom</artifactId>
+                    <version>${spring.version}</version><type>pom</type><scope>import</scope>
+                  </dependency></dependencies></dependencyManagement>
+                </project>""");
+        cacheFile(cache, "org.springframework", "spring-bom", "6.2.1", "dd44", "spring-bom-6.2.1.pom", "<project/>");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.7.0", "ee55", "jmix-core-2.7.0.jar", "older release");
+        Path manifestFile = Files.writeString(tempDir.resolve("resolution.txt"), """
+                # deptool resolution manifest v1
+                [compileClasspath]
+                io.jmix.core:jmix-core:2.8.0
+                """);
+
+        Set<String> closure = PomClosure.expand(cache, ResolutionManifest.load(manifestFile).components());
+        GradleCacheExporter.Report report = new GradleCacheExporter(cache, target, false).only(closure).export();
+
+        assertEquals(Set.of("io.jmix.core:jmix-core:2.8.0", "io.jmix:jmix-parent:2.8.0",
+                "org.springframework:spring-bom:6.2.1"), Set.copyOf(report.components));
+        assertTrue(Files.exists(target.resolve("org/springframework/spring-bom/6.2.1/spring-bom-6.2.1.pom")));
+        assertFalse(Files.exists(target.resolve("io/jmix/core/jmix-core/2.7.0")));
+    }
+
+    @Test
+    void export_withAResolutionManifest_keepsTheBuildscriptClasspath() throws Exception {
+        Path cache = tempDir.resolve("files-2.1");
+        Path target = tempDir.resolve("export");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "core");
+        cacheFile(cache, "io.jmix.gradle", "jmix-gradle-plugin", "2.8.0", "bb22", "jmix-gradle-plugin-2.8.0.jar", "plugin");
+        cacheFile(cache, "org.springframework.boot", "spring-boot-gradle-plugin", "3.5.0", "cc33",
+                "spring-boot-gradle-plugin-3.5.0.jar", "boot");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.7.0", "dd44", "jmix-core-2.7.0.jar", "other release");
+        Path manifestFile = Files.writeString(tempDir.resolve("jmix-2.8.0.resolution"), """
+                # deptool resolution manifest v1
+                [compileClasspath]
+                io.jmix.core:jmix-core:2.8.0
+                [buildscript:classpath]
+                io.jmix.gradle:jmix-gradle-plugin:2.8.0
+                org.springframework.boot:spring-boot-gradle-plugin:3.5.0
+                """);
+
+        GradleCacheExporter.Report report = new GradleCacheExporter(cache, target, false)
+                .only(ResolutionManifest.load(manifestFile).components())
+                .export();
+
+        assertEquals(Set.of("io.jmix.core:jmix-core:2.8.0", "io.jmix.gradle:jmix-gradle-plugin:2.8.0",
+                "org.springframework.boot:spring-boot-gradle-plugin:3.5.0"), Set.copyOf(report.components));
+        assertTrue(Files.exists(target.resolve("io/jmix/gradle/jmix-gradle-plugin/2.8.0/jmix-gradle-plugin-2.8.0.jar")));
+        assertFalse(Files.exists(target.resolve("io/jmix/core/jmix-core/2.7.0")));
+    }
+
+    @Test
+    void export_streamsARecordPerExportedFile() throws Exception {
+        Path cache = tempDir.resolve("files-2.1");
+        Path target = tempDir.resolve("export");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "aa11", "jmix-core-2.8.0.jar", "jar");
+        cacheFile(cache, "io.jmix.core", "jmix-core", "2.8.0", "bb22", "jmix-core-2.8.0-sources.jar", "sources");
+        Path first = tempDir.resolve("first.jsonl");
+        Path second = tempDir.resolve("second.jsonl");
+
+        try (ExportRecords records = new ExportRecords(first)) {
+            new GradleCacheExporter(cache, target, false).recordTo(records).export();
+        }
+        try (ExportRecords records = new ExportRecords(second)) {
+            new GradleCacheExporter(cache, target, true).recordTo(records).export();
+        }
+
+        List<String> lines = Files.readAllLines(first);
+        assertEquals(2, lines.size());
+        assertTrue(lines.contains("{\"coordinates\":\"io.jmix.core:jmix-core:2.8.0\"," +
+                "\"file\":\"io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0-sources.jar\",\"classifier\":\"sources\"," +
+                "\"size\":7,\"sha256\":\"" + hex("SHA-256", "sources") + "\",\"source\":\"gradle-cache\"}"));
+        // Files already in the target are recorded too, so every records file describes the whole export.
+        assertEquals(Set.copyOf(lines), Set.copyOf(Files.readAllLines(second)));
+        // ... from the SHA-256 the manifest kept, without hashing them again.
+        assertEquals(hex("SHA-256", "sources"),
+                ExportManifest.load(target).get("io/jmix/core/jmix-core/2.8.0/jmix-core-2.8.0-sources.jar").sha256());
+    }
+
+    @Test
+    void load_ignoresMissingManifest() {
+        assertEquals(0, ExportManifest.load(tempDir.resolve("absent")).size());
+    }
+
+    private static String hex(String algorithm, String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(content.getBytes()));
+    }
+}
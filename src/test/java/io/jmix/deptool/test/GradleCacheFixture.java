@@ -0,0 +1,20 @@
+package io.jmix.deptool.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Builds a fake Gradle {@code files-2.1} cache for the exporter tests. */
+final class GradleCacheFixture {
+
+    private GradleCacheFixture() {
+    }
+
+    /** Writes {@code <cache>/<group>/<artifact>/<version>/<sha1>/<fileName>} with the given content. */
+    static Path cacheFile(Path cache, String group, String artifact, String version, String sha1,
+                          String fileName, String content) throws IOException {
+        Path dir = cache.resolve(group).resolve(artifact).resolve(version).resolve(sha1);
+        Files.createDirectories(dir);
+        return Files.writeString(dir.resolve(fileName), content);
+    }
+}
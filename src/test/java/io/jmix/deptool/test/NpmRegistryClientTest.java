@@ -0,0 +1,43 @@
+package io.jmix.deptool.test;
+
+import io.jmix.dependency.cli.npm.NpmRegistryClient;
+import io.jmix.dependency.cli.npm.ResolvedRef;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NpmRegistryClientTest {
+
+    @Test
+    void parseDistRefs_keepsOnlyTarballAndIntegrity() throws IOException {
+        String packument = "{"
+                + "\"name\": \"dompurify\","
+                + "\"dist-tags\": {\"latest\": \"3.4.5\"},"
+                + "\"modified\": \"2025-01-01T00:00:00Z\","
+                + "\"versions\": {"
+                + "  \"3.4.0\": {\"name\": \"dompurify\", \"version\": \"3.4.0\","
+                + "    \"dependencies\": {\"a\": \"^1.0.0\"},"
+                + "    \"dist\": {\"shasum\": \"abc\", \"tarball\": \"https://r/dompurify-3.4.0.tgz\","
+                + "      \"integrity\": \"sha512-AAA\", \"signatures\": [{\"sig\": \"x\"}]}},"
+                + "  \"3.4.5\": {\"dist\": {\"tarball\": \"https://r/dompurify-3.4.5.tgz\"}},"
+                + "  \"0.0.1\": {\"deprecated\": \"no dist\"}"
+                + "}}";
+
+        Map<String, ResolvedRef> refs = NpmRegistryClient.parseDistRefs(new StringReader(packument));
+
+        assertEquals(2, refs.size());
+        assertEquals(new ResolvedRef("https://r/dompurify-3.4.0.tgz", "sha512-AAA"), refs.get("3.4.0"));
+        assertEquals(new ResolvedRef("https://r/dompurify-3.4.5.tgz", null), refs.get("3.4.5"));
+        assertNull(refs.get("0.0.1")); // no dist -> not downloadable
+    }
+
+    @Test
+    void parseDistRefs_toleratesMissingVersions() throws IOException {
+        assertEquals(0, NpmRegistryClient.parseDistRefs(new StringReader("{\"error\": \"not found\"}")).size());
+    }
+}
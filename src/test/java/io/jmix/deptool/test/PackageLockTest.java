@@ -0,0 +1,98 @@
+package io.jmix.deptool.test;
+
+import io.jmix.dependency.cli.npm.NpmDownloadPlan;
+import io.jmix.dependency.cli.npm.NpmVariantCollector;
+import io.jmix.dependency.cli.npm.PackageLock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PackageLockTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stream_readsPackagesMapAndIgnoresLegacyTree() throws IOException {
+        Path lock = write("{"
+                + "\"name\": \"app\", \"lockfileVersion\": 3,"
+                + "\"dependencies\": {\"ignored\": {\"version\": \"9.9.9\"}},"
+                + "\"packages\": {"
+                + "  \"\": {\"name\": \"app\", \"dependencies\": {\"dompurify\": \"^3.0.0\"}},"
+                + "  \"node_modules/dompurify\": {\"version\": \"3.4.5\","
+                + "    \"resolved\": \"https://r/dompurify-3.4.5.tgz\", \"integrity\": \"sha512-X\"},"
+                + "  \"node_modules/@vaadin/a/node_modules/lit\": {\"version\": \"3.1.0\", \"dev\": true,"
+                + "    \"peerDependencies\": {\"dompurify\": \"3.4.0\"}},"
+                + "  \"packages/local\": {\"name\": \"local-pkg\", \"version\": \"1.0.0\"}"
+                + "}}");
+
+        List<PackageLock.Entry> entries = new ArrayList<>();
+        int version = PackageLock.stream(lock, entries::add);
+
+        assertEquals(3, version);
+        assertEquals(3, entries.size());
+        assertEquals("dompurify", entries.get(0).name);
+        assertEquals("https://r/dompurify-3.4.5.tgz", entries.get(0).resolved);
+        assertEquals("sha512-X", entries.get(0).integrity);
+        assertEquals("lit", entries.get(1).name);
+        assertEquals(Map.of("dompurify", "3.4.0"), entries.get(1).peerDependencies);
+        assertEquals(Map.of(), entries.get(1).dependencies);
+        assertEquals("local-pkg", entries.get(2).name);
+        assertNull(entries.get(2).resolved);
+    }
+
+    @Test
+    void stream_fallsBackToLegacyTreeWithNestedDependencies() throws IOException {
+        Path lock = write("{"
+                + "\"lockfileVersion\": 1,"
+                + "\"dependencies\": {"
+                + "  \"a\": {\"version\": \"1.0.0\", \"resolved\": \"https://r/a-1.0.0.tgz\","
+                + "    \"dependencies\": {\"b\": {\"version\": \"2.0.0\"}},"
+                + "    \"requires\": {\"b\": \"2.0.0\"}},"
+                + "  \"c\": {\"version\": \"3.0.0\"}"
+                + "}}");
+
+        PackageLock parsed = PackageLock.parse(lock);
+
+        assertEquals(1, parsed.lockfileVersion());
+        assertEquals(List.of("a", "b", "c"), parsed.entries().stream().map(e -> e.name).toList());
+        assertEquals(Map.of("b", "2.0.0"), parsed.entries().get(0).dependencies);
+    }
+
+    @Test
+    void into_singlePassMatchesTwoPassCollect() throws IOException {
+        // The exact pin of dompurify 3.4.5 comes before the entry that installs it.
+        Path lock = write("{\"lockfileVersion\": 3, \"packages\": {"
+                + "  \"node_modules/a\": {\"version\": \"1.0.0\", \"resolved\": \"https://r/a.tgz\","
+                + "    \"peerDependencies\": {\"dompurify\": \"3.4.5\", \"lit\": \"^3.0.0\"},"
+                + "    \"dependencies\": {\"b\": \"=2.0.0\"}},"
+                + "  \"node_modules/dompurify\": {\"version\": \"3.4.5\", \"resolved\": \"https://r/d.tgz\"}"
+                + "}}");
+
+        NpmDownloadPlan twoPass = NpmVariantCollector.collect(PackageLock.parse(lock));
+        NpmDownloadPlan singlePass = new NpmDownloadPlan();
+        PackageLock.stream(lock, NpmVariantCollector.into(singlePass));
+
+        assertEquals(Set.of("b@2.0.0"), singlePass.variantKeys());
+        assertEquals(twoPass.variantKeys(), singlePass.variantKeys());
+        assertEquals(twoPass.resolvedKeys(), singlePass.resolvedKeys());
+        assertEquals(twoPass.versionsByName(), singlePass.versionsByName());
+    }
+
+    private Path write(String json) throws IOException {
+        Path file = tempDir.resolve("package-lock.json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        return file;
+    }
+}
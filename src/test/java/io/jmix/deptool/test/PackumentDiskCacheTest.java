@@ -0,0 +1,111 @@
+package io.jmix.deptool.test;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jmix.dependency.cli.npm.NpmRegistryClient;
+import io.jmix.dependency.cli.npm.PackumentDiskCache;
+import io.jmix.dependency.cli.npm.ResolvedRef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PackumentDiskCacheTest {
+
+    private static final String REGISTRY = "https://registry.npmjs.org";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_returnsTheValidatorsAndVersionsThatWereWritten() {
+        PackumentDiskCache cache = new PackumentDiskCache(tempDir);
+        PackumentDiskCache.Entry entry = new PackumentDiskCache.Entry(REGISTRY, "\"etag-1\"",
+                "Wed, 01 Jan 2025 00:00:00 GMT",
+                Map.of("1.0.0", new ResolvedRef("https://r/@vaadin/router-1.0.0.tgz", "sha512-AAA")));
+
+        cache.write("@vaadin/router", entry);
+
+        assertEquals(entry, cache.read(REGISTRY, "@vaadin/router"));
+        assertNull(cache.read(REGISTRY, "router"));
+    }
+
+    @Test
+    void read_ignoresAnEntryWrittenForAnotherRegistry() {
+        PackumentDiskCache cache = new PackumentDiskCache(tempDir);
+        cache.write("lit", new PackumentDiskCache.Entry("https://npm.example.com", "\"etag-1\"", null,
+                Map.of("3.0.0", new ResolvedRef("https://npm.example.com/lit-3.0.0.tgz", null))));
+
+        assertNull(cache.read(REGISTRY, "lit"));
+    }
+
+    @Test
+    void read_treatsACorruptOrPartialFileAsAbsent() throws IOException {
+        PackumentDiskCache cache = new PackumentDiskCache(tempDir);
+        Files.writeString(tempDir.resolve("lit.json"), "{\"registry\":\"" + REGISTRY + "\",\"versions\":{\"3.0.0\":{\"url\"");
+        Files.writeString(tempDir.resolve("dompurify.json"), "not json at all");
+        Files.writeString(tempDir.resolve("vue.json"), "");
+
+        assertNull(cache.read(REGISTRY, "lit"));
+        assertNull(cache.read(REGISTRY, "dompurify"));
+        assertNull(cache.read(REGISTRY, "vue"));
+
+        PackumentDiskCache.Entry entry = new PackumentDiskCache.Entry(REGISTRY, null, null,
+                Map.of("3.0.0", new ResolvedRef("https://r/lit-3.0.0.tgz", null)));
+        cache.write("lit", entry);
+        assertEquals(entry, cache.read(REGISTRY, "lit"));
+    }
+
+    @Test
+    void registryClient_reusesTheCachedVersionsWhenTheRegistryAnswersNotModified() throws IOException {
+        List<String> exchanges = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/dompurify", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if ("\"etag-1\"".equals(ifNoneMatch)) {
+                exchanges.add("304");
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchanges.add("200");
+                byte[] body = ("{\"versions\": {\"3.4.0\": {\"dist\": {\"tarball\": \"https://r/dompurify-3.4.0.tgz\"," +
+                        "\"integrity\": \"sha512-AAA\"}}}}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", "\"etag-1\"");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        String registry = "http://127.0.0.1:" + server.getAddress().getPort();
+        ResolvedRef expected = new ResolvedRef("https://r/dompurify-3.4.0.tgz", "sha512-AAA");
+        try {
+            try (NpmRegistryClient first = new NpmRegistryClient(registry, 1, tempDir)) {
+                assertEquals(expected, first.lookup("dompurify", "3.4.0"));
+            }
+            PackumentDiskCache.Entry cached = new PackumentDiskCache(tempDir).read(registry, "dompurify");
+            assertNotNull(cached);
+            assertEquals("\"etag-1\"", cached.etag());
+
+            try (NpmRegistryClient second = new NpmRegistryClient(registry, 1, tempDir)) {
+                assertEquals(expected, second.lookup("dompurify", "3.4.0"));
+            }
+        } finally {
+            server.stop(0);
+        }
+
+        assertEquals(List.of("200", "304"), exchanges);
+    }
+}
@@ -0,0 +1,48 @@
+package io.jmix.deptool.test;
+
+import io.jmix.dependency.cli.export.ResolutionManifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResolutionManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void merge_combinesTheManifestsOfShardedBuilds() throws Exception {
+        Path shard0 = Files.writeString(tempDir.resolve("shard-0.resolution"), """
+                # deptool resolution manifest v1
+                [compileClasspath]
+                io.jmix.core:jmix-core:2.8.0
+                [iso_000_api]
+                io.jmix.core:jmix-core:2.8.0
+                [recovery]
+                com.google.guava:guava:32.1.0-jre
+                """);
+        Path shard1 = Files.writeString(tempDir.resolve("shard-1.resolution"), """
+                # deptool resolution manifest v1
+                [iso_001_api]
+                io.jmix.data:jmix-data:2.8.0
+                [recovery]
+                com.google.guava:guava:31.0-jre
+                """);
+        Path merged = tempDir.resolve("merged.resolution");
+
+        ResolutionManifest.load(shard0).merge(ResolutionManifest.load(shard1)).write(merged);
+
+        ResolutionManifest manifest = ResolutionManifest.load(merged);
+        assertEquals(List.of("compileClasspath", "iso_000_api", "recovery", "iso_001_api"),
+                List.copyOf(manifest.configurations().keySet()));
+        assertEquals(Set.of("com.google.guava:guava:31.0-jre", "com.google.guava:guava:32.1.0-jre"),
+                manifest.configurations().get("recovery"));
+        assertEquals(4, manifest.components().size());
+    }
+}